@@ -0,0 +1,187 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the addresses of server names so sending a message doesn't
+ * have to wait for the resolver.
+ *
+ * <p>Only the first lookup of a name blocks the caller.  Once the
+ * cached addresses have expired they are still used while a
+ * background thread resolves the name again.  Failed lookups are
+ * cached as well, for a shorter time, and retried the same way.  If
+ * a name resolves to more than one address - A as well as AAAA
+ * records - the addresses are used in turn.</p>
+ *
+ * <p>A cache may be shared by many clients.</p>
+ */
+public class AddressCache {
+
+    private static final long DEFAULT_TTL = 30000;
+    private static final long DEFAULT_NEGATIVE_TTL = 5000;
+
+    private final long ttl, negativeTtl;
+    private final ConcurrentMap<String, Entry> entries =
+        new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Caches addresses for 30 seconds and failed lookups for five
+     * seconds.
+     */
+    public AddressCache() {
+        this(DEFAULT_TTL, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * Caches addresses and failed lookups for the given times.
+     * @param ttl time in milliseconds addresses are used before they
+     *        are refreshed, must be positive
+     * @param negativeTtl time in milliseconds a failed lookup is
+     *        remembered, must not be negative
+     */
+    public AddressCache(long ttl, long negativeTtl) {
+        if (ttl < 1 || negativeTtl < 0) {
+            throw new IllegalArgumentException("ttl must be positive and"
+                                               + " negativeTtl must not be"
+                                               + " negative");
+        }
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+    }
+
+    /**
+     * Provides the next address of the given host.
+     * @throws UnknownHostException if the host name couldn't be
+     *         resolved recently
+     */
+    public InetSocketAddress resolve(String host, int port)
+        throws UnknownHostException {
+        final long now = System.currentTimeMillis();
+        Entry e = entries.get(host);
+        if (e == null) {
+            e = lookup(host, now, null);
+            entries.put(host, e);
+        } else if (now >= e.expires) {
+            // failed lookups too, so senders never wait for the resolver
+            refresh(host, e);
+        }
+        if (e.addresses == null) {
+            UnknownHostException ex = new UnknownHostException(host);
+            ex.initCause(e.failure);
+            throw ex;
+        }
+        return new InetSocketAddress(e.next(), port);
+    }
+
+    /**
+     * Forgets everything that has been cached.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Resolves the given host name to all of its addresses.
+     *
+     * <p>Only exists so tests can override it.</p>
+     */
+    InetAddress[] lookup(String host) throws UnknownHostException {
+        return InetAddress.getAllByName(host);
+    }
+
+    private Entry lookup(String host, long now, Entry stale) {
+        try {
+            InetAddress[] addresses = lookup(host);
+            if (addresses.length > 0) {
+                return new Entry(addresses, null, now + ttl);
+            }
+        } catch (UnknownHostException ex) {
+            if (stale != null && stale.addresses != null) {
+                // keep using what used to work and retry later
+                return new Entry(stale.addresses, null, now + negativeTtl);
+            }
+            return new Entry(null, ex, now + negativeTtl);
+        }
+        return new Entry(null, new UnknownHostException(host),
+                         now + negativeTtl);
+    }
+
+    private void refresh(final String host, final Entry e) {
+        if (!e.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Refresher.EXECUTOR.execute(new Runnable() {
+                    public void run() {
+                        Entry fresh =
+                            lookup(host, System.currentTimeMillis(), e);
+                        entries.replace(host, e, fresh);
+                    }
+                });
+        } catch (RejectedExecutionException ex) {
+            e.refreshing.set(false);
+        }
+    }
+
+    private static final class Entry {
+        private final InetAddress[] addresses;
+        private final UnknownHostException failure;
+        private final long expires;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(InetAddress[] addresses, UnknownHostException failure,
+                      long expires) {
+            this.addresses = addresses;
+            this.failure = failure;
+            this.expires = expires;
+        }
+
+        private InetAddress next() {
+            int idx = (next.getAndIncrement() & Integer.MAX_VALUE)
+                % addresses.length;
+            return addresses[idx];
+        }
+    }
+
+    /**
+     * Holds the thread shared by all caches, it is only started once
+     * an entry needs to be refreshed.
+     */
+    private static final class Refresher {
+        private static final Executor EXECUTOR =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "qmqp-address-cache");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+}
@@ -0,0 +1,594 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.codec.EnvelopeTemplate;
+import com.innoq.qmqp.codec.NetStringDecoder;
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.codec.ResponseCodec;
+import com.innoq.qmqp.protocol.QMQPConnectException;
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.util.BufferPool;
+import com.innoq.qmqp.util.BufferPools;
+import com.innoq.qmqp.util.IOUtil;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends messages via QMQP over TCP to a mail transport agent that is
+ * willing to queue them without blocking the calling thread.
+ *
+ * <p>All connections are multiplexed over a small number of I/O
+ * threads, each running a Selector based event loop.  The I/O threads
+ * are daemon threads that are started when the client is created and
+ * stopped by {@link #close close}.</p>
+ */
+public class AsyncQMQPClient implements IAsyncQMQPClient {
+
+    private final RequestCodec reqCodec = new RequestCodec();
+    private final ResponseCodec respCodec = new ResponseCodec();
+
+    private static final String DEFAULT_HOST = "localhost";
+    private static final int DEFAULT_PORT = 628;
+    private static final int BUF_LEN = 8192;
+    private static final long SELECT_TIMEOUT = 100;
+    private static final int DEFAULT_MAX_RESPONSE_SIZE = 65536;
+
+    private final String serverName;
+    private final int port;
+    private volatile int readTimeout, connectTimeout, writeTimeout;
+    private volatile int maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+    private volatile AddressCache addressCache = new AddressCache();
+    private volatile BufferPool bufferPool = BufferPools.getDefault();
+
+    private final EventLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Sets up a client to send messages to localhost's port 628
+     * using a single I/O thread.
+     */
+    public AsyncQMQPClient() {
+        this(DEFAULT_HOST, DEFAULT_PORT);
+    }
+
+    /**
+     * Sets up a client to send messages to the given host and port
+     * using a single I/O thread.
+     * @param host name of host to connect to
+     * @param port port to connect to
+     */
+    public AsyncQMQPClient(String host, int port) {
+        this(host, port, 1);
+    }
+
+    /**
+     * Sets up a client to send messages to the given host and port.
+     * @param host name of host to connect to
+     * @param port port to connect to
+     * @param ioThreads number of I/O threads, must be positive
+     */
+    public AsyncQMQPClient(String host, int port, int ioThreads) {
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("At least one I/O thread is"
+                                               + " required.");
+        }
+        this.serverName = host;
+        this.port = port;
+        loops = new EventLoop[ioThreads];
+        try {
+            for (int i = 0; i < ioThreads; i++) {
+                loops[i] = new EventLoop(i);
+            }
+        } catch (IOException ex) {
+            for (EventLoop l : loops) {
+                if (l != null) {
+                    l.closeSelector();
+                }
+            }
+            throw new QMQPException("Failed to open selector", ex);
+        }
+        for (EventLoop l : loops) {
+            l.start();
+        }
+    }
+
+    /**
+     * Sends a message for queueing and waits for the response.
+     */
+    public Response send(Request request) throws QMQPException {
+        return submit(request, null).join();
+    }
+
+    /**
+     * Sends a message for queueing and returns immediately.
+     */
+    public Future<Response> sendAsync(Request request) {
+        return submit(request, null);
+    }
+
+    /**
+     * Sends a message for queueing, returns immediately and notifies
+     * the given callback once the exchange has completed.
+     *
+     * <p>The callback is invoked on one of the client's I/O threads
+     * and must not block.</p>
+     */
+    public Future<Response> sendAsync(Request request,
+                                      SendCallback callback) {
+        return submit(request, callback);
+    }
+
+    /**
+     * Sends a message prepared as template to the given recipients and
+     * returns immediately.
+     *
+     * <p>Only the recipients are encoded for each call, see {@link
+     * RequestCodec#toTemplate(byte[], String)}.</p>
+     */
+    public Future<Response> sendAsync(EnvelopeTemplate template,
+                                      String... recipients) {
+        ResponseFuture f = new ResponseFuture(null, null);
+        if (closed) {
+            f.fail(new QMQPException("Client has been closed"));
+            return f;
+        }
+        final BufferPool pool = bufferPool;
+        submit(reqCodec.toBuffers(template, recipients, pool), pool, f);
+        return f;
+    }
+
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Doesn't use any additional threads, the callback is invoked
+     * on one of the client's I/O threads.</p>
+     */
+    public void sendAll(Iterable<Request> requests, int concurrency,
+                        SendCallback callback) throws QMQPException {
+        if (requests == null) {
+            throw new IllegalArgumentException("requests must not be null");
+        }
+        sendAll(requests.iterator(), concurrency, callback);
+    }
+
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Doesn't use any additional threads, the callback is invoked
+     * on one of the client's I/O threads.</p>
+     */
+    public void sendAll(Iterator<Request> requests, int concurrency,
+                        SendCallback callback) throws QMQPException {
+        BulkSender.sendAll(this, requests, concurrency, callback);
+    }
+
+    /**
+     * Sets the connect timeout for the client in milliseconds.
+     *
+     * <p>A value &lt;= 0 means no timeout at all.</p>
+     */
+    public void setConnectTimeout(int timeout) {
+        connectTimeout = timeout;
+    }
+
+    /**
+     * Sets the read timeout for the client in milliseconds.
+     *
+     * <p>The timeout applies to the time spent waiting for the
+     * server to send any data.  A value &lt;= 0 means no timeout at
+     * all.</p>
+     */
+    public void setReadTimeout(int timeout) {
+        readTimeout = timeout;
+    }
+
+    /**
+     * Sets the write timeout for the client in milliseconds.
+     *
+     * <p>The timeout applies to the time spent waiting for the server
+     * to accept more of the request.  A value &lt;= 0 means no timeout
+     * at all.</p>
+     */
+    public void setWriteTimeout(int timeout) {
+        writeTimeout = timeout;
+    }
+
+    /**
+     * Sets the maximum number of bytes the server's response may
+     * contain, defaults to 64 KB.
+     *
+     * <p>Longer responses make the exchange fail with an
+     * exception.</p>
+     */
+    public void setMaxResponseSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        maxResponseSize = size;
+    }
+
+    /**
+     * Sets the cache used to resolve the server's name, by default
+     * each client has a cache of its own.
+     * @param cache may be null to resolve the name for each message
+     */
+    public void setAddressCache(AddressCache cache) {
+        addressCache = cache;
+    }
+
+    /**
+     * Sets the pool the buffers used to encode requests are taken
+     * from, defaults to {@link BufferPools#getDefault}.
+     * @param pool must not be null
+     */
+    public void setBufferPool(BufferPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        bufferPool = pool;
+    }
+
+    /**
+     * Stops the I/O threads, requests that are still in flight will
+     * fail.
+     */
+    public void close() {
+        closed = true;
+        for (EventLoop l : loops) {
+            l.shutdown();
+        }
+    }
+
+    private ResponseFuture submit(Request request, SendCallback callback) {
+        ResponseFuture f = new ResponseFuture(request, callback);
+        if (closed) {
+            f.fail(new QMQPException("Client has been closed"));
+            return f;
+        }
+        final BufferPool pool = bufferPool;
+        submit(reqCodec.toBuffers(request, pool), pool, f);
+        return f;
+    }
+
+    /**
+     * Resolves the server's address on the caller's thread, so a slow
+     * lookup never blocks an I/O thread, and hands the exchange to
+     * the next I/O thread.
+     */
+    private void submit(ByteBuffer[] encoded, BufferPool pool,
+                        ResponseFuture f) {
+        final InetSocketAddress addr;
+        try {
+            addr = address();
+        } catch (UnknownHostException ex) {
+            pool.release(encoded[0]);
+            f.fail(new QMQPConnectException("Failed to connect to "
+                                            + serverName + ":" + port, ex));
+            return;
+        }
+        int idx = (nextLoop.getAndIncrement() & Integer.MAX_VALUE)
+            % loops.length;
+        loops[idx].submit(new Exchange(addr, encoded, pool, f));
+    }
+
+    private InetSocketAddress address() throws UnknownHostException {
+        final AddressCache c = addressCache;
+        return c == null ? new InetSocketAddress(serverName, port)
+            : c.resolve(serverName, port);
+    }
+
+    private static long deadline(int timeout) {
+        return timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+    }
+
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Exchange> newExchanges =
+            new ConcurrentLinkedQueue<Exchange>();
+        // only accessed by the I/O thread
+        private final Set<Exchange> active = new HashSet<Exchange>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(BUF_LEN);
+        private volatile boolean running = true;
+
+        EventLoop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "qmqp-async-io-" + index);
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void submit(Exchange e) {
+            newExchanges.add(e);
+            if (!running) {
+                // shutdown may have drained the queue already
+                failQueued();
+                return;
+            }
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(SELECT_TIMEOUT);
+                    startNewExchanges();
+                    Iterator<SelectionKey> keys =
+                        selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        ((Exchange) key.attachment()).handle(key);
+                    }
+                    expireExchanges();
+                }
+            } catch (IOException ex) {
+                // selector is broken, fail everything below
+            } catch (ClosedSelectorException ex) {
+                // same as above
+            } finally {
+                running = false;
+                for (Exchange e : new HashSet<Exchange>(active)) {
+                    e.fail(new QMQPException("Client has been closed"));
+                }
+                failQueued();
+                closeSelector();
+            }
+        }
+
+        void closeSelector() {
+            try {
+                selector.close();
+            } catch (IOException ex) {
+                // nothing left to clean up
+            }
+        }
+
+        private void startNewExchanges() {
+            Exchange e;
+            while ((e = newExchanges.poll()) != null) {
+                if (!e.future.isDone()) {
+                    e.start(this);
+                } else {
+                    e.release();
+                }
+            }
+        }
+
+        private void expireExchanges() {
+            long now = System.currentTimeMillis();
+            for (Exchange e : new HashSet<Exchange>(active)) {
+                e.checkExpired(now);
+            }
+        }
+
+        private void failQueued() {
+            Exchange e;
+            while ((e = newExchanges.poll()) != null) {
+                e.release();
+                e.future.fail(new QMQPException("Client has been closed"));
+            }
+        }
+    }
+
+    private enum Phase { CONNECTING, WRITING, READING }
+
+    private final class Exchange {
+        private final InetSocketAddress address;
+        private final ByteBuffer[] out;
+        private final BufferPool pool;
+        private final ResponseFuture future;
+        private final NetStringDecoder in =
+            new NetStringDecoder(maxResponseSize);
+        private EventLoop loop;
+        private SocketChannel channel;
+        private Phase phase = Phase.CONNECTING;
+        private long deadline;
+
+        private int firstOut;
+        private boolean released;
+
+        Exchange(InetSocketAddress address, ByteBuffer[] out,
+                 BufferPool pool, ResponseFuture future) {
+            this.address = address;
+            this.out = out;
+            this.pool = pool;
+            this.future = future;
+        }
+
+        void start(EventLoop l) {
+            loop = l;
+            loop.active.add(this);
+            deadline = deadline(connectTimeout);
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                if (channel.connect(address)) {
+                    startWriting();
+                    channel.register(loop.selector, SelectionKey.OP_WRITE,
+                                     this);
+                } else {
+                    channel.register(loop.selector, SelectionKey.OP_CONNECT,
+                                     this);
+                }
+            } catch (IOException ex) {
+                fail(ex);
+            } catch (UnresolvedAddressException ex) {
+                fail(new QMQPConnectException("Failed to connect to "
+                                              + serverName + ":" + port,
+                                              ex));
+            }
+        }
+
+        void handle(SelectionKey key) {
+            if (future.isDone()) {
+                // cancelled
+                finish();
+                return;
+            }
+            try {
+                if (key.isConnectable()) {
+                    if (channel.finishConnect()) {
+                        startWriting();
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    }
+                } else if (key.isWritable()) {
+                    if (write()) {
+                        phase = Phase.READING;
+                        deadline = deadline(readTimeout);
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                } else if (key.isReadable()) {
+                    read();
+                }
+            } catch (IOException ex) {
+                fail(ex);
+            }
+        }
+
+        void checkExpired(long now) {
+            if (future.isDone()) {
+                finish();
+            } else if (deadline > 0 && now >= deadline) {
+                fail(new SocketTimeoutException(phase == Phase.CONNECTING
+                                                ? "connect timed out"
+                                                : phase == Phase.WRITING
+                                                ? "Write timed out"
+                                                : "Read timed out"));
+            }
+        }
+
+        void fail(QMQPException ex) {
+            finish();
+            future.fail(ex);
+        }
+
+        private void startWriting() {
+            phase = Phase.WRITING;
+            deadline = deadline(writeTimeout);
+        }
+
+        /**
+         * Writes as much of the request as possible.
+         * @return whether the whole request has been written
+         */
+        private boolean write() throws IOException {
+            if (channel.write(out, firstOut, out.length - firstOut) > 0) {
+                deadline = deadline(writeTimeout);
+            }
+            while (firstOut < out.length && !out[firstOut].hasRemaining()) {
+                firstOut++;
+            }
+            return firstOut == out.length;
+        }
+
+        private void read() throws IOException {
+            ByteBuffer buf = loop.readBuffer;
+            buf.clear();
+            int len = channel.read(buf);
+            if (len < 0) {
+                throw new EOFException("Connection closed before the"
+                                       + " response was complete");
+            }
+            deadline = deadline(readTimeout);
+            buf.flip();
+            switch (in.decode(buf)) {
+            case COMPLETE:
+                // don't wait for the server to close the connection
+                finish();
+                try {
+                    future.complete(respCodec.fromContent(in.getData()));
+                } catch (QMQPException ex) {
+                    future.fail(ex);
+                }
+                break;
+            case MALFORMED:
+                fail(new QMQPException("Malformed response from "
+                                       + serverName + ":" + port + ": "
+                                       + in.getError()));
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void fail(IOException ex) {
+            switch (phase) {
+            case CONNECTING:
+                fail(new QMQPConnectException("Failed to connect to "
+                                              + serverName + ":" + port,
+                                              ex));
+                break;
+            case WRITING:
+                fail(new QMQPException("Failed to write to " + serverName
+                                       + ":" + port, ex));
+                break;
+            default:
+                fail(new QMQPException("Failed to read from " + serverName
+                                       + ":" + port, ex));
+                break;
+            }
+        }
+
+        /**
+         * Hands the pooled request buffer back, at most once.
+         */
+        synchronized void release() {
+            if (!released) {
+                released = true;
+                pool.release(out[0]);
+            }
+        }
+
+        private void finish() {
+            loop.active.remove(this);
+            IOUtil.close(channel, true);
+            release();
+        }
+    }
+}
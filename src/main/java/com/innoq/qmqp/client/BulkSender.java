@@ -0,0 +1,233 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of the clients' sendAll methods.
+ *
+ * <p>Requests are pulled from the iterator only when there is
+ * capacity to send them, so the input is never materialized.</p>
+ */
+final class BulkSender {
+    private BulkSender() {}
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    /**
+     * Sends all requests using the blocking send method of the given
+     * client from up to concurrency worker threads.
+     */
+    static void sendAll(final IQMQPClient client,
+                        final Iterator<Request> requests,
+                        final int concurrency,
+                        final SendCallback callback) {
+        validate(requests, concurrency);
+        final ExecutorService workers =
+            Executors.newFixedThreadPool(concurrency,
+                                         new WorkerFactory());
+        final Worker w = new Worker(client, requests, callback);
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                workers.execute(w);
+            }
+            workers.shutdown();
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting
+            }
+        } catch (InterruptedException ex) {
+            w.abort();
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new QMQPException("Interrupted while sending requests", ex);
+        }
+        w.rethrowFailure();
+    }
+
+    /**
+     * Sends all requests using the non-blocking sendAsync method of
+     * the given client with at most concurrency requests in flight.
+     */
+    static void sendAll(final IAsyncQMQPClient client,
+                        final Iterator<Request> requests,
+                        final int concurrency,
+                        final SendCallback callback) {
+        validate(requests, concurrency);
+        final Semaphore permits = new Semaphore(concurrency);
+        // the first exception thrown by the callback
+        final AtomicReference<RuntimeException> failure =
+            new AtomicReference<RuntimeException>();
+        final SendCallback releasing = new SendCallback() {
+                public void responseReceived(Request r, Response res) {
+                    try {
+                        if (callback != null) {
+                            callback.responseReceived(r, res);
+                        }
+                    } catch (RuntimeException ex) {
+                        failure.compareAndSet(null, ex);
+                    } finally {
+                        permits.release();
+                    }
+                }
+                public void sendFailed(Request r, QMQPException ex) {
+                    try {
+                        if (callback != null) {
+                            callback.sendFailed(r, ex);
+                        }
+                    } catch (RuntimeException rex) {
+                        failure.compareAndSet(null, rex);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            };
+        try {
+            while (failure.get() == null && requests.hasNext()) {
+                permits.acquire();
+                Request r;
+                try {
+                    r = requests.next();
+                } catch (RuntimeException ex) {
+                    permits.release();
+                    throw ex;
+                }
+                try {
+                    client.sendAsync(r, releasing);
+                } catch (QMQPException ex) {
+                    // the request was rejected before it got to the
+                    // client's callback
+                    releasing.sendFailed(r, ex);
+                } catch (RuntimeException ex) {
+                    permits.release();
+                    throw ex;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new QMQPException("Interrupted while sending requests", ex);
+        } finally {
+            // no callback may run once sendAll has returned
+            permits.acquireUninterruptibly(concurrency);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static void validate(Iterator<Request> requests,
+                                 int concurrency) {
+        if (requests == null) {
+            throw new IllegalArgumentException("requests must not be null");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be"
+                                               + " positive");
+        }
+    }
+
+    private static final class Worker implements Runnable {
+        private final IQMQPClient client;
+        private final Iterator<Request> requests;
+        private final SendCallback callback;
+        // guards requests
+        private final Lock lock = new ReentrantLock();
+        private volatile boolean aborted;
+        private volatile RuntimeException failure;
+
+        Worker(IQMQPClient client, Iterator<Request> requests,
+               SendCallback callback) {
+            this.client = client;
+            this.requests = requests;
+            this.callback = callback;
+        }
+
+        public void run() {
+            try {
+                Request r;
+                while ((r = next()) != null) {
+                    send(r);
+                }
+            } catch (RuntimeException ex) {
+                // the iterator or the callback failed
+                if (failure == null) {
+                    failure = ex;
+                }
+                aborted = true;
+            }
+        }
+
+        void abort() {
+            aborted = true;
+        }
+
+        void rethrowFailure() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private Request next() {
+            lock.lock();
+            try {
+                return !aborted && requests.hasNext() ? requests.next() : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void send(Request r) {
+            Response res;
+            try {
+                res = client.send(r);
+            } catch (QMQPException ex) {
+                if (callback != null) {
+                    callback.sendFailed(r, ex);
+                }
+                return;
+            }
+            if (callback != null) {
+                callback.responseReceived(r, res);
+            }
+        }
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private final int pool = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger thread = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "qmqp-bulk-" + pool + "-"
+                                  + thread.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
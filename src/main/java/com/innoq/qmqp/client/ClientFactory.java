@@ -0,0 +1,29 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+/**
+ * Creates the client {@link ClusterQMQPClient} uses to talk to a
+ * single server.
+ */
+public interface ClientFactory {
+    /**
+     * Creates and configures a client for the given server.
+     * @return the client, must not be null
+     */
+    IQMQPClient createClient(Endpoint endpoint);
+}
@@ -0,0 +1,241 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPConnectException;
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends messages via QMQP to one of several mail transport agents.
+ *
+ * <p>Like qmail-qmqpc the client tries the servers one after the
+ * other until it has been able to connect to one of them.  Which
+ * server is tried first depends on the configured {@link
+ * LoadBalancing} strategy.  A server the client has failed to connect
+ * to is considered down and only tried again after all other servers
+ * or once the configured down time has passed.</p>
+ *
+ * <p>Only connect failures cause the client to try the next server,
+ * once a request has been sent at least partially any failure is
+ * reported to the caller.</p>
+ */
+public class ClusterQMQPClient implements IBulkQMQPClient {
+
+    private static final int DEFAULT_DOWN_TIME = 30000;
+    private static final ClientFactory DEFAULT_FACTORY = new ClientFactory() {
+            public IQMQPClient createClient(Endpoint endpoint) {
+                return new QMQPClient(endpoint.getHost(), endpoint.getPort());
+            }
+        };
+
+    private final List<Node> nodes;
+    private final LoadBalancing strategy;
+    private final AtomicInteger nextNode = new AtomicInteger();
+    private volatile int downTime = DEFAULT_DOWN_TIME;
+
+    /**
+     * Sets up a client to send messages to the given servers using
+     * round-robin load balancing.
+     * @param endpoints the servers to use, must not be empty
+     */
+    public ClusterQMQPClient(List<Endpoint> endpoints) {
+        this(endpoints, LoadBalancing.ROUND_ROBIN);
+    }
+
+    /**
+     * Sets up a client to send messages to the given servers.
+     * @param endpoints the servers to use, must not be empty
+     * @param strategy the load balancing strategy, must not be null
+     */
+    public ClusterQMQPClient(List<Endpoint> endpoints,
+                             LoadBalancing strategy) {
+        this(endpoints, strategy, DEFAULT_FACTORY);
+    }
+
+    /**
+     * Sets up a client to send messages to the given servers using
+     * clients created by the given factory, e.g. in order to configure
+     * the client for a server.
+     * @param endpoints the servers to use, must not be empty
+     * @param strategy the load balancing strategy, must not be null
+     * @param factory creates the client for each server, must not be
+     *        null
+     */
+    public ClusterQMQPClient(List<Endpoint> endpoints,
+                             LoadBalancing strategy, ClientFactory factory) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is"
+                                               + " required.");
+        }
+        if (strategy == null) {
+            throw new IllegalArgumentException("Strategy must not be null.");
+        }
+        if (factory == null) {
+            throw new IllegalArgumentException("Factory must not be null.");
+        }
+        this.strategy = strategy;
+        List<Node> n = new ArrayList<Node>(endpoints.size());
+        for (Endpoint e : endpoints) {
+            n.add(new Node(e, factory.createClient(e)));
+        }
+        nodes = n;
+    }
+
+    /**
+     * Sends a message for queueing.
+     *
+     * @throws QMQPConnectException if the client failed to connect to
+     *         any of the servers
+     */
+    public Response send(Request request) throws QMQPException {
+        QMQPConnectException lastFailure = null;
+        for (Node n : candidates()) {
+            n.outstanding.incrementAndGet();
+            try {
+                Response r = n.client.send(request);
+                n.downUntil = 0;
+                return r;
+            } catch (QMQPConnectException ex) {
+                n.downUntil = System.currentTimeMillis() + downTime;
+                lastFailure = ex;
+            } finally {
+                n.outstanding.decrementAndGet();
+            }
+        }
+        throw new QMQPConnectException("Failed to connect to any of "
+                                       + getEndpoints(), lastFailure);
+    }
+
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Uses one worker thread per parallel exchange.</p>
+     */
+    public void sendAll(Iterable<Request> requests, int concurrency,
+                        SendCallback callback) throws QMQPException {
+        if (requests == null) {
+            throw new IllegalArgumentException("requests must not be null");
+        }
+        sendAll(requests.iterator(), concurrency, callback);
+    }
+
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Uses one worker thread per parallel exchange.</p>
+     */
+    public void sendAll(Iterator<Request> requests, int concurrency,
+                        SendCallback callback) throws QMQPException {
+        BulkSender.sendAll(this, requests, concurrency, callback);
+    }
+
+    /**
+     * Sets the connect timeout for all servers in milliseconds.
+     *
+     * <p>A value &lt;= 0 means no timeout at all.</p>
+     */
+    public void setConnectTimeout(int timeout) {
+        for (Node n : nodes) {
+            n.client.setConnectTimeout(timeout);
+        }
+    }
+
+    /**
+     * Sets the read timeout for all servers in milliseconds.
+     *
+     * <p>A value &lt;= 0 means no timeout at all.</p>
+     */
+    public void setReadTimeout(int timeout) {
+        for (Node n : nodes) {
+            n.client.setReadTimeout(timeout);
+        }
+    }
+
+    /**
+     * Sets the time in milliseconds a server is considered down after
+     * the client has failed to connect to it, defaults to 30 seconds.
+     */
+    public void setDownTime(int downTime) {
+        this.downTime = downTime;
+    }
+
+    /**
+     * The servers this client sends messages to.
+     */
+    public List<Endpoint> getEndpoints() {
+        List<Endpoint> l = new ArrayList<Endpoint>(nodes.size());
+        for (Node n : nodes) {
+            l.add(n.endpoint);
+        }
+        return l;
+    }
+
+    /**
+     * All nodes in the order they should be tried, nodes that are
+     * down come last.
+     */
+    private List<Node> candidates() {
+        final int count = nodes.size();
+        final int start = (nextNode.getAndIncrement() & Integer.MAX_VALUE)
+            % count;
+        final long now = System.currentTimeMillis();
+        List<Node> up = new ArrayList<Node>(count);
+        List<Node> down = new ArrayList<Node>(0);
+        for (int i = 0; i < count; i++) {
+            Node n = nodes.get((start + i) % count);
+            if (n.downUntil > now) {
+                down.add(n);
+            } else if (strategy == LoadBalancing.LEAST_OUTSTANDING) {
+                insertByOutstanding(up, n);
+            } else {
+                up.add(n);
+            }
+        }
+        up.addAll(down);
+        return up;
+    }
+
+    private static void insertByOutstanding(List<Node> l, Node n) {
+        final int outstanding = n.outstanding.get();
+        int i = l.size();
+        while (i > 0 && l.get(i - 1).outstanding.get() > outstanding) {
+            i--;
+        }
+        l.add(i, n);
+    }
+
+    private static final class Node {
+        private final Endpoint endpoint;
+        private final IQMQPClient client;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile long downUntil;
+
+        Node(Endpoint endpoint, IQMQPClient client) {
+            this.endpoint = endpoint;
+            this.client = client;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+/**
+ * Host and port of a QMQP server.
+ */
+public final class Endpoint {
+
+    private static final int DEFAULT_PORT = 628;
+
+    private final String host;
+    private final int port;
+
+    /**
+     * An endpoint for the given host's port 628.
+     * @param host name of host to connect to, must not be null
+     */
+    public Endpoint(String host) {
+        this(host, DEFAULT_PORT);
+    }
+
+    /**
+     * An endpoint for the given host and port.
+     * @param host name of host to connect to, must not be null
+     * @param port port to connect to
+     */
+    public Endpoint(String host, int port) {
+        if (host == null) {
+            throw new IllegalArgumentException("Host must not be null.");
+        }
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * The name of the host.
+     * <p>Will not be null</p>
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * The port.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public boolean equals(Object o) {
+        if (!(o instanceof Endpoint)) {
+            return false;
+        }
+        Endpoint other = (Endpoint) o;
+        return host.equals(other.host) && port == other.port;
+    }
+
+    public int hashCode() {
+        return 31 * host.hashCode() + port;
+    }
+
+    public String toString() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the blocking exchanges of another client on the threads of an
+ * ExecutorService.
+ *
+ * <p>Each message occupies one thread of the executor while it is
+ * being sent, so this client is best combined with an executor that
+ * creates cheap threads, see {@link VirtualThreadQMQPClient}.</p>
+ */
+public class ExecutorQMQPClient implements IAsyncQMQPClient {
+
+    private final IQMQPClient delegate;
+    private final ExecutorService executor;
+
+    /**
+     * Sets up a client that sends messages using the given client
+     * from threads of the given executor.
+     * @param delegate the client that performs the actual exchange,
+     *        must not be null
+     * @param executor the executor to send messages from, must not be
+     *        null.  Will be shut down when this client is closed.
+     */
+    public ExecutorQMQPClient(IQMQPClient delegate,
+                              ExecutorService executor) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * Sends a message for queueing from the calling thread.
+     */
+    public Response send(Request request) throws QMQPException {
+        return delegate.send(request);
+    }
+
+    /**
+     * Sends a message for queueing from a thread of the executor.
+     */
+    public Future<Response> sendAsync(Request request) {
+        return sendAsync(request, null);
+    }
+
+    /**
+     * Sends a message for queueing from a thread of the executor and
+     * notifies the callback on that same thread.
+     */
+    public Future<Response> sendAsync(final Request request,
+                                      SendCallback callback) {
+        final ResponseFuture f = new ResponseFuture(request, callback);
+        try {
+            executor.execute(new Runnable() {
+                    public void run() {
+                        if (f.isDone()) {
+                            // cancelled
+                            return;
+                        }
+                        try {
+                            f.complete(delegate.send(request));
+                        } catch (QMQPException ex) {
+                            f.fail(ex);
+                        } catch (RuntimeException ex) {
+                            f.fail(new QMQPException("Failed to send"
+                                                     + " request", ex));
+                        }
+                    }
+                });
+        } catch (RejectedExecutionException ex) {
+            f.fail(new QMQPException("Client has been closed", ex));
+        }
+        return f;
+    }
+
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Uses a thread of the executor per parallel exchange.</p>
+     */
+    public void sendAll(Iterable<Request> requests, int concurrency,
+                        SendCallback callback) throws QMQPException {
+        if (requests == null) {
+            throw new IllegalArgumentException("requests must not be null");
+        }
+        sendAll(requests.iterator(), concurrency, callback);
+    }
+
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Uses a thread of the executor per parallel exchange.</p>
+     */
+    public void sendAll(Iterator<Request> requests, int concurrency,
+                        SendCallback callback) throws QMQPException {
+        BulkSender.sendAll(this, requests, concurrency, callback);
+    }
+
+    /**
+     * Sets the connect timeout for the client in milliseconds.
+     *
+     * <p>A value &lt;= 0 means no timeout at all.</p>
+     */
+    public void setConnectTimeout(int timeout) {
+        delegate.setConnectTimeout(timeout);
+    }
+
+    /**
+     * Sets the read timeout for the client in milliseconds.
+     *
+     * <p>A value &lt;= 0 means no timeout at all.</p>
+     */
+    public void setReadTimeout(int timeout) {
+        delegate.setReadTimeout(timeout);
+    }
+
+    /**
+     * Shuts down the executor, requests that have not been started,
+     * yet, will fail.
+     */
+    public void close() {
+        executor.shutdown();
+    }
+}
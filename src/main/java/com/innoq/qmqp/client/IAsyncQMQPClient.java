@@ -0,0 +1,46 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import java.util.concurrent.Future;
+
+/**
+ * Extension of IQMQPClient for clients that can send messages
+ * without blocking the calling thread.
+ */
+public interface IAsyncQMQPClient extends IBulkQMQPClient {
+    /**
+     * Sends a message for queueing and returns immediately.
+     *
+     * <p>Any failure is reported as a QMQPException wrapped into the
+     * ExecutionException thrown by the returned Future.</p>
+     */
+    Future<Response> sendAsync(Request request);
+    /**
+     * Sends a message for queueing, returns immediately and notifies
+     * the given callback once the exchange has completed.
+     * @param callback may be null
+     */
+    Future<Response> sendAsync(Request request, SendCallback callback);
+    /**
+     * Releases all resources held by the client, requests that are
+     * still in flight will fail.
+     */
+    void close();
+}
@@ -0,0 +1,64 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import java.util.Iterator;
+
+/**
+ * Extension of IQMQPClient for clients that can send many messages
+ * with a bounded number of parallel exchanges.
+ */
+public interface IBulkQMQPClient extends IQMQPClient {
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Requests are consumed from the input only as they are sent.
+     * Failures to send a single message are reported to the callback
+     * rather than thrown.  If the input or the callback throws a
+     * RuntimeException no further messages are sent, sendAll waits
+     * for the exchanges in flight and rethrows the first such
+     * exception.</p>
+     * @param requests the messages to send, must not be null
+     * @param concurrency maximum number of parallel exchanges, must be
+     *        positive
+     * @param callback notified about the outcome of each message, may
+     *        be null
+     */
+    void sendAll(Iterable<Request> requests, int concurrency,
+                 SendCallback callback) throws QMQPException;
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Requests are consumed from the input only as they are sent.
+     * Failures to send a single message are reported to the callback
+     * rather than thrown.  If the input or the callback throws a
+     * RuntimeException no further messages are sent, sendAll waits
+     * for the exchanges in flight and rethrows the first such
+     * exception.</p>
+     * @param requests the messages to send, must not be null
+     * @param concurrency maximum number of parallel exchanges, must be
+     *        positive
+     * @param callback notified about the outcome of each message, may
+     *        be null
+     */
+    void sendAll(Iterator<Request> requests, int concurrency,
+                 SendCallback callback) throws QMQPException;
+}
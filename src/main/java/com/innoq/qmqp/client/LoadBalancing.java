@@ -0,0 +1,33 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+/**
+ * The strategies ClusterQMQPClient can use to pick the server for
+ * the next request.
+ */
+public enum LoadBalancing {
+    /**
+     * Uses all servers in turn.
+     */
+    ROUND_ROBIN,
+    /**
+     * Uses the server with the smallest number of requests currently
+     * in flight.
+     */
+    LEAST_OUTSTANDING;
+}
@@ -16,34 +16,51 @@
 
 package com.innoq.qmqp.client;
 
+import com.innoq.qmqp.codec.EnvelopeTemplate;
 import com.innoq.qmqp.codec.RequestCodec;
 import com.innoq.qmqp.codec.ResponseCodec;
+import com.innoq.qmqp.protocol.LargeEnvelopeRequest;
+import com.innoq.qmqp.protocol.QMQPConnectException;
 import com.innoq.qmqp.protocol.QMQPException;
 import com.innoq.qmqp.protocol.Request;
 import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.StreamingRequest;
+import com.innoq.qmqp.util.BufferPool;
+import com.innoq.qmqp.util.BufferPools;
 import com.innoq.qmqp.util.IOUtil;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
 
 /**
  * Sends messages via QMQP over TCP to a mail transport agent that is
  * willing to queue them.
  */
-public class QMQPClient implements IQMQPClient {
+public class QMQPClient implements IBulkQMQPClient {
 
     private final RequestCodec reqCodec = new RequestCodec();
     private final ResponseCodec respCodec = new ResponseCodec();
 
     private static final String DEFAULT_HOST = "localhost";
     private static final int DEFAULT_PORT = 628;
+    private static final int BUF_LEN = 8192;
+    private static final int DEFAULT_MAX_RESPONSE_SIZE = 65536;
 
     private final String serverName;
     private final int port;
     private int readTimeout, connectTimeout;
+    private volatile SpeculativeConnector connector;
+    private volatile AddressCache addressCache = new AddressCache();
+    private int maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+    private volatile BufferPool bufferPool = BufferPools.getDefault();
 
     /**
      * Sets up a client to send messages to localhost's port 628.
@@ -83,7 +100,103 @@ public class QMQPClient implements IQMQPClient {
      * Sends a message for queueing.
      */
     public Response send(Request request) throws QMQPException {
-        return respCodec.fromNetwork(send(reqCodec.toNetwork(request)));
+        final BufferPool pool = bufferPool;
+        return send(reqCodec.toBuffers(request, pool), pool);
+    }
+
+    /**
+     * Sends a message prepared as template to the given recipients.
+     *
+     * <p>Only the recipients are encoded for each call, see {@link
+     * RequestCodec#toTemplate(byte[], String)}.</p>
+     */
+    public Response send(EnvelopeTemplate template, String... recipients)
+        throws QMQPException {
+        final BufferPool pool = bufferPool;
+        return send(reqCodec.toBuffers(template, recipients, pool), pool);
+    }
+
+    /**
+     * Sends a message for queueing while reading it from its source.
+     *
+     * <p>The message is read twice, once to determine its encoded
+     * length before connecting to the server and once while sending
+     * it.  Memory usage doesn't depend on the size of the
+     * message.</p>
+     *
+     * <p>Messages read from a FileMessageSource that don't contain
+     * any CRLF sequences are transferred from the file to the socket
+     * without being copied into the Java heap.</p>
+     */
+    public Response send(final StreamingRequest request)
+        throws QMQPException {
+        final long messageLength;
+        try {
+            messageLength = reqCodec.messageLength(request);
+        } catch (IOException ex) {
+            throw new QMQPException("Failed to read message", ex);
+        }
+        return send(new Payload() {
+                public void writeTo(Socket s, OutputStream os)
+                    throws IOException {
+                    if (s.getChannel() != null) {
+                        reqCodec.toNetwork(request, messageLength,
+                                           s.getChannel());
+                        return;
+                    }
+                    BufferedOutputStream bos =
+                        new BufferedOutputStream(os, BUF_LEN);
+                    reqCodec.toNetwork(request, messageLength, bos);
+                    bos.flush();
+                }
+            });
+    }
+
+    /**
+     * Sends a message to a large number of recipients without holding
+     * them in memory.
+     *
+     * <p>The recipients are iterated once to validate them and
+     * determine the envelope's length before connecting to the server
+     * and once while sending them.</p>
+     */
+    public Response send(final LargeEnvelopeRequest request)
+        throws QMQPException {
+        final long envelopeLength = reqCodec.envelopeLength(request);
+        return send(new Payload() {
+                public void writeTo(Socket s, OutputStream os)
+                    throws IOException {
+                    BufferedOutputStream bos =
+                        new BufferedOutputStream(os, BUF_LEN);
+                    reqCodec.toNetwork(request, envelopeLength, bos);
+                    bos.flush();
+                }
+            });
+    }
+
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Uses one worker thread per parallel exchange.</p>
+     */
+    public void sendAll(Iterable<Request> requests, int concurrency,
+                        SendCallback callback) throws QMQPException {
+        if (requests == null) {
+            throw new IllegalArgumentException("requests must not be null");
+        }
+        sendAll(requests.iterator(), concurrency, callback);
+    }
+
+    /**
+     * Sends all given messages with at most concurrency exchanges in
+     * flight at any time and returns once all of them have completed.
+     *
+     * <p>Uses one worker thread per parallel exchange.</p>
+     */
+    public void sendAll(Iterator<Request> requests, int concurrency,
+                        SendCallback callback) throws QMQPException {
+        BulkSender.sendAll(this, requests, concurrency, callback);
     }
 
     /**
@@ -104,30 +217,132 @@ public class QMQPClient implements IQMQPClient {
         readTimeout = timeout;
     }
 
-    private byte[] send(byte[] request) {
-        Socket s = null;
+    /**
+     * Sets the maximum number of bytes the server's response may
+     * contain, defaults to 64 KB.
+     *
+     * <p>Longer responses make the client fail with an exception.</p>
+     */
+    public void setMaxResponseSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        maxResponseSize = size;
+    }
+
+    /**
+     * Sets the cache used to resolve the server's name, by default
+     * each client has a cache of its own.
+     * @param cache may be null to resolve the name for each message
+     */
+    public void setAddressCache(AddressCache cache) {
+        addressCache = cache;
+    }
+
+    /**
+     * Sets the pool the buffers used to encode requests and read
+     * responses are taken from, defaults to {@link
+     * BufferPools#getDefault}.
+     * @param pool must not be null
+     */
+    public void setBufferPool(BufferPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        bufferPool = pool;
+    }
+
+    /**
+     * Makes the client use connections opened in advance by the
+     * given connector whenever one is available.
+     * @param connector may be null to always open a new connection
+     */
+    public void setSpeculativeConnector(SpeculativeConnector connector) {
+        this.connector = connector;
+    }
+
+    /**
+     * Sends an encoded request and releases its first buffer to the
+     * pool afterwards.
+     */
+    private Response send(final ByteBuffer[] encoded, BufferPool pool) {
+        try {
+            return send(new Payload() {
+                    public void writeTo(Socket s, OutputStream os)
+                        throws IOException {
+                        if (s.getChannel() != null) {
+                            // a retry on a fresh connection writes it again
+                            final ByteBuffer[] buffers =
+                                new ByteBuffer[encoded.length];
+                            for (int i = 0; i < buffers.length; i++) {
+                                buffers[i] = encoded[i].duplicate();
+                            }
+                            IOUtil.writeFully(s.getChannel(), buffers);
+                            return;
+                        }
+                        for (ByteBuffer b : encoded) {
+                            IOUtil.write(os, b);
+                        }
+                    }
+                });
+        } finally {
+            pool.release(encoded[0]);
+        }
+    }
+
+    private Response send(Payload request) {
+        final SpeculativeConnector c = connector;
+        if (c != null) {
+            Socket warm = c.acquire(new Endpoint(serverName, port));
+            if (warm != null) {
+                Response res = send(request, warm);
+                if (res != null) {
+                    return res;
+                }
+                // the server has closed the idle connection before it
+                // received the whole request, use a fresh one
+            }
+        }
+        return send(request, null);
+    }
+
+    /**
+     * @param warm a connection opened in advance, may be null
+     * @return null if the request couldn't be written to the given
+     *         warm connection, so the server can't have received it
+     */
+    private Response send(Payload request, Socket warm) {
+        Socket s = warm;
         OutputStream os = null;
         InputStream is = null;
         boolean success = true;
         try {
-            InetSocketAddress addr = new InetSocketAddress(serverName, port);
-            s = new Socket();
-            if (readTimeout > 0) {
+            if (s == null) {
+                InetSocketAddress addr = address();
+                // channel backed, so payloads can use transferTo
+                s = SocketChannel.open().socket();
+                if (readTimeout > 0) {
+                    s.setSoTimeout(readTimeout);
+                }
+                s.connect(addr, connectTimeout > 0 ? connectTimeout : 0);
+            } else if (readTimeout > 0) {
                 s.setSoTimeout(readTimeout);
             }
-            s.connect(addr, connectTimeout > 0 ? connectTimeout : 0);
             os = s.getOutputStream();
-            os.write(request);
+            request.writeTo(s, os);
             os.flush();
             is = s.getInputStream();
-            return IOUtil.readFully(is);
+            return respCodec.readFrom(is, maxResponseSize, bufferPool);
         } catch (IOException ex) {
             success = false;
             if (s == null || !s.isConnected()) {
-                throw new QMQPException("Failed to connect to " + serverName
-                                        + ":" + port, ex);
+                throw new QMQPConnectException("Failed to connect to "
+                                               + serverName + ":" + port, ex);
             }
             if (is == null) {
+                if (warm != null) {
+                    return null;
+                }
                 throw new QMQPException("Failed to write to " + serverName
                                         + ":" + port, ex);
             }
@@ -140,4 +355,16 @@ public class QMQPClient implements IQMQPClient {
         }
     }
 
+    private InetSocketAddress address() throws UnknownHostException {
+        final AddressCache c = addressCache;
+        return c == null ? new InetSocketAddress(serverName, port)
+            : c.resolve(serverName, port);
+    }
+
+    /**
+     * The encoded request that is written to the server.
+     */
+    private interface Payload {
+        void writeTo(Socket s, OutputStream os) throws IOException;
+    }
 }
@@ -0,0 +1,157 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Future completed by the asynchronous clients once the server has
+ * answered a request.
+ */
+final class ResponseFuture implements Future<Response> {
+
+    private final Request request;
+    private final SendCallback callback;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private volatile Response response;
+    private volatile QMQPException failure;
+    private volatile boolean cancelled;
+
+    ResponseFuture(Request request, SendCallback callback) {
+        this.request = request;
+        this.callback = callback;
+    }
+
+    /**
+     * Completes the future successfully unless it has been completed
+     * before.
+     * @return whether this call completed the future
+     */
+    boolean complete(Response r) {
+        if (!completed.compareAndSet(false, true)) {
+            return false;
+        }
+        response = r;
+        done.countDown();
+        if (callback != null) {
+            try {
+                callback.responseReceived(request, r);
+            } catch (RuntimeException ex) {
+                // must not break the I/O thread, nothing we can do
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Completes the future exceptionally unless it has been completed
+     * before.
+     * @return whether this call completed the future
+     */
+    boolean fail(QMQPException ex) {
+        if (!completed.compareAndSet(false, true)) {
+            return false;
+        }
+        failure = ex;
+        done.countDown();
+        notifyFailure(ex);
+        return true;
+    }
+
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!completed.compareAndSet(false, true)) {
+            return false;
+        }
+        cancelled = true;
+        done.countDown();
+        notifyFailure(new QMQPException("Request has been cancelled"));
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return completed.get();
+    }
+
+    public Response get() throws InterruptedException, ExecutionException {
+        done.await();
+        return result();
+    }
+
+    public Response get(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    /**
+     * Waits for the exchange to complete and unwraps any failure.
+     * @throws QMQPException if the exchange failed or the waiting
+     *         thread has been interrupted
+     */
+    Response join() throws QMQPException {
+        try {
+            done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new QMQPException("Interrupted while waiting for response",
+                                    ex);
+        }
+        if (cancelled) {
+            throw new QMQPException("Request has been cancelled");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return response;
+    }
+
+    private Response result() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return response;
+    }
+
+    private void notifyFailure(QMQPException ex) {
+        if (callback != null) {
+            try {
+                callback.sendFailed(request, ex);
+            } catch (RuntimeException rex) {
+                // must not break the I/O thread, nothing we can do
+            }
+        }
+    }
+}
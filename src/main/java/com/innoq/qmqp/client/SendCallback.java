@@ -0,0 +1,41 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+
+/**
+ * Callback notified once a request has been answered by the server
+ * or has failed.
+ *
+ * <p>Exactly one of the two methods is invoked for each request.
+ * Callbacks may be invoked on an I/O thread of the client and must
+ * not block.</p>
+ */
+public interface SendCallback {
+    /**
+     * The server has answered the given request.
+     */
+    void responseReceived(Request request, Response response);
+    /**
+     * The given request could not be sent or the response could not
+     * be read.
+     */
+    void sendFailed(Request request, QMQPException failure);
+}
@@ -0,0 +1,365 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.util.IOUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps already established connections ready so a client doesn't
+ * have to wait for the TCP handshake when sending a message.
+ *
+ * <p>QMQP uses a new connection for each message.  The connector
+ * opens connections to each endpoint it has been asked for in
+ * background threads and hands them out to QMQPClient on demand.
+ * Connections that have been idle for longer than the configured time
+ * are closed and only replaced if the endpoint has been used
+ * recently.  Connections the server has closed in the meantime are
+ * discarded when they are handed out.</p>
+ *
+ * <p>A connector may be shared by many clients and must be closed
+ * once it is no longer needed.</p>
+ */
+public class SpeculativeConnector {
+
+    private static final int DEFAULT_SOCKETS_PER_ENDPOINT = 4;
+    private static final int DEFAULT_MAX_SOCKETS = 64;
+    private static final long DEFAULT_MAX_IDLE = 10000;
+    private static final long MIN_EXPIRY_INTERVAL = 100;
+    private static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+    private static final int CONNECT_THREADS = 4;
+
+    private final int socketsPerEndpoint, maxSockets;
+    private final long maxIdle;
+    private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private volatile AddressCache addressCache = new AddressCache();
+
+    private final ConcurrentMap<Endpoint, Pool> pools =
+        new ConcurrentHashMap<Endpoint, Pool>();
+    private final AtomicInteger totalSockets = new AtomicInteger();
+    private final ScheduledExecutorService scheduler =
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "qmqp-speculative-connector");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    // connects block, so they must not delay the expiry of idle sockets
+    private final ExecutorService connectors =
+        Executors.newFixedThreadPool(CONNECT_THREADS, new ThreadFactory() {
+                private final AtomicInteger number = new AtomicInteger();
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "qmqp-speculative-connect-"
+                                          + number.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    private volatile boolean closed;
+
+    /**
+     * Keeps up to four connections per endpoint and 64 connections
+     * in total for at most ten seconds.
+     */
+    public SpeculativeConnector() {
+        this(DEFAULT_SOCKETS_PER_ENDPOINT, DEFAULT_MAX_SOCKETS,
+             DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param socketsPerEndpoint number of connections to keep ready
+     *        per endpoint, must be positive
+     * @param maxSockets maximum number of connections to keep ready
+     *        in total, must be positive
+     * @param maxIdle time in milliseconds after which an unused
+     *        connection is closed, must be positive.  Should be
+     *        smaller than the idle timeout of the server.
+     */
+    public SpeculativeConnector(int socketsPerEndpoint, int maxSockets,
+                                long maxIdle) {
+        if (socketsPerEndpoint < 1 || maxSockets < 1) {
+            throw new IllegalArgumentException("number of sockets must be"
+                                               + " positive");
+        }
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("idle time must be"
+                                               + " positive");
+        }
+        this.socketsPerEndpoint = socketsPerEndpoint;
+        this.maxSockets = maxSockets;
+        this.maxIdle = maxIdle;
+        long interval = Math.max(maxIdle / 2, MIN_EXPIRY_INTERVAL);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    expireIdleSockets();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the connect timeout for the background connections in
+     * milliseconds, defaults to five seconds.
+     *
+     * <p>A value &lt;= 0 means no timeout at all.</p>
+     */
+    public void setConnectTimeout(int timeout) {
+        connectTimeout = timeout;
+    }
+
+    /**
+     * Sets the cache used to resolve the endpoints' names, by default
+     * each connector has a cache of its own.
+     *
+     * <p>Should be the cache of the clients using the connector.</p>
+     * @param cache may be null to resolve the name for each connection
+     */
+    public void setAddressCache(AddressCache cache) {
+        addressCache = cache;
+    }
+
+    /**
+     * Starts opening connections to the given endpoint in the
+     * background.
+     */
+    public void warmUp(Endpoint endpoint) {
+        refill(pool(endpoint));
+    }
+
+    /**
+     * The number of connections currently ready for the given
+     * endpoint.
+     */
+    public int available(Endpoint endpoint) {
+        Pool p = pools.get(endpoint);
+        return p == null ? 0 : p.count.get();
+    }
+
+    /**
+     * Closes all connections that are ready and stops the background
+     * threads.
+     */
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        connectors.shutdownNow();
+        for (Pool p : pools.values()) {
+            p.closeAll();
+        }
+    }
+
+    /**
+     * Hands out a connection to the given endpoint if one is ready
+     * and triggers the opening of a replacement.
+     * @return null if no connection is ready
+     */
+    Socket acquire(Endpoint endpoint) {
+        Pool p = pool(endpoint);
+        p.lastUsed = System.currentTimeMillis();
+        Socket s = p.poll();
+        refill(p);
+        return s;
+    }
+
+    private Pool pool(Endpoint endpoint) {
+        Pool p = pools.get(endpoint);
+        if (p == null) {
+            Pool newPool = new Pool(endpoint);
+            p = pools.putIfAbsent(endpoint, newPool);
+            if (p == null) {
+                p = newPool;
+            }
+        }
+        return p;
+    }
+
+    private void refill(final Pool p) {
+        if (closed || p.count.get() >= socketsPerEndpoint
+            || !p.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            connectors.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            p.fill();
+                        } finally {
+                            p.refilling.set(false);
+                        }
+                    }
+                });
+        } catch (RejectedExecutionException ex) {
+            // closed concurrently
+            p.refilling.set(false);
+        }
+    }
+
+    private void expireIdleSockets() {
+        long now = System.currentTimeMillis();
+        for (Pool p : pools.values()) {
+            p.expire(now - maxIdle);
+            if (p.lastUsed > now - maxIdle) {
+                refill(p);
+            }
+        }
+    }
+
+    /**
+     * Whether the server has neither closed nor written to the given
+     * connection, so a request written to it hasn't been lost.
+     */
+    private static boolean isUnused(Socket s) {
+        SocketChannel c = s.getChannel();
+        if (s.isClosed() || c == null) {
+            return false;
+        }
+        try {
+            c.configureBlocking(false);
+            try {
+                return c.read(ByteBuffer.allocate(1)) == 0;
+            } finally {
+                c.configureBlocking(true);
+            }
+        } catch (IOException ex) {
+            // reset by the server
+            return false;
+        }
+    }
+
+    private static final class IdleSocket {
+        private final Socket socket;
+        private final long since = System.currentTimeMillis();
+
+        IdleSocket(Socket socket) {
+            this.socket = socket;
+        }
+    }
+
+    private final class Pool {
+        private final Endpoint endpoint;
+        private final Queue<IdleSocket> sockets =
+            new ConcurrentLinkedQueue<IdleSocket>();
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        Pool(Endpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        Socket poll() {
+            IdleSocket s;
+            while ((s = sockets.poll()) != null) {
+                release();
+                if (isUnused(s.socket)) {
+                    return s.socket;
+                }
+                IOUtil.close(s.socket, true);
+            }
+            return null;
+        }
+
+        void fill() {
+            while (!closed && count.get() < socketsPerEndpoint
+                   && reserve()) {
+                Socket s = null;
+                boolean connected = false;
+                try {
+                    InetSocketAddress addr = address();
+                    s = SocketChannel.open().socket();
+                    s.connect(addr, connectTimeout > 0 ? connectTimeout : 0);
+                    connected = true;
+                } catch (IOException ex) {
+                    // server unreachable, try again on next use
+                    return;
+                } finally {
+                    if (!connected) {
+                        // runtime exceptions must not leak the slot
+                        totalSockets.decrementAndGet();
+                        IOUtil.close(s, true);
+                    }
+                }
+                sockets.add(new IdleSocket(s));
+                count.incrementAndGet();
+                if (closed) {
+                    closeAll();
+                }
+            }
+        }
+
+        void expire(long idleSince) {
+            for (Iterator<IdleSocket> it = sockets.iterator();
+                 it.hasNext(); ) {
+                IdleSocket s = it.next();
+                if (s.since < idleSince && sockets.remove(s)) {
+                    release();
+                    IOUtil.close(s.socket, true);
+                }
+            }
+        }
+
+        void closeAll() {
+            IdleSocket s;
+            while ((s = sockets.poll()) != null) {
+                release();
+                IOUtil.close(s.socket, true);
+            }
+        }
+
+        private InetSocketAddress address() throws IOException {
+            final AddressCache c = addressCache;
+            return c == null
+                ? new InetSocketAddress(endpoint.getHost(), endpoint.getPort())
+                : c.resolve(endpoint.getHost(), endpoint.getPort());
+        }
+
+        private boolean reserve() {
+            while (true) {
+                int current = totalSockets.get();
+                if (current >= maxSockets) {
+                    return false;
+                }
+                if (totalSockets.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            count.decrementAndGet();
+            totalSockets.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.util.VirtualThreads;
+
+/**
+ * Sends each message from a virtual thread of its own.
+ *
+ * <p>Requires a Java runtime that supports virtual threads (Java 21
+ * or later), the library itself is still compiled for older runtimes
+ * and looks up the executor reflectively.</p>
+ *
+ * <p>The blocking send path of QMQPClient - connect, write and reading
+ * the response - doesn't hold any monitors, so virtual threads
+ * unmount from their carrier while waiting for the network and
+ * hundreds of thousands of messages can be in flight at the same
+ * time.  Any SendCallback must not block inside of synchronized blocks
+ * either in order to keep this property.</p>
+ */
+public class VirtualThreadQMQPClient extends ExecutorQMQPClient {
+
+    private static final String DEFAULT_HOST = "localhost";
+    private static final int DEFAULT_PORT = 628;
+
+    /**
+     * Sets up a client to send messages to localhost's port 628.
+     * @throws UnsupportedOperationException if the Java runtime
+     *         doesn't support virtual threads
+     */
+    public VirtualThreadQMQPClient() {
+        this(DEFAULT_HOST, DEFAULT_PORT);
+    }
+
+    /**
+     * Sets up a client to send messages to the given host and port.
+     * @param host name of host to connect to
+     * @param port port to connect to
+     * @throws UnsupportedOperationException if the Java runtime
+     *         doesn't support virtual threads
+     */
+    public VirtualThreadQMQPClient(String host, int port) {
+        this(new QMQPClient(host, port));
+    }
+
+    /**
+     * Sets up a client to send messages using the given blocking
+     * client.
+     * @param delegate the client that performs the actual exchange,
+     *        must not be null
+     * @throws UnsupportedOperationException if the Java runtime
+     *         doesn't support virtual threads
+     */
+    public VirtualThreadQMQPClient(IQMQPClient delegate) {
+        super(delegate, VirtualThreads.newVirtualThreadPerTaskExecutor());
+    }
+}
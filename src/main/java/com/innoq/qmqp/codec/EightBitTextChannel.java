@@ -0,0 +1,103 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Channel counterpart of {@link EightBitTextOutputStream}.
+ *
+ * <p>Every write consumes all remaining bytes of the given buffer, so
+ * the underlying channel must be in blocking mode.</p>
+ */
+public class EightBitTextChannel implements WritableByteChannel {
+
+    private static final int BUF_LEN = 8192;
+
+    private final WritableByteChannel channel;
+    private final EightBitTextOutputStream out;
+    private byte[] copyBuffer;
+    private boolean open = true;
+
+    /**
+     * Creates a channel that passes the transformed message on.
+     * @param channel the channel to write to, may be null to only
+     *        count the transformed bytes
+     */
+    public EightBitTextChannel(WritableByteChannel channel) {
+        this.channel = channel;
+        out = new EightBitTextOutputStream(channel == null ? null
+                                           : Channels.newOutputStream(channel));
+    }
+
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        final int len = src.remaining();
+        if (src.hasArray()) {
+            out.write(src.array(), src.arrayOffset() + src.position(), len);
+            src.position(src.limit());
+            return len;
+        }
+        if (copyBuffer == null) {
+            copyBuffer = new byte[BUF_LEN];
+        }
+        while (src.hasRemaining()) {
+            final int n = Math.min(src.remaining(), BUF_LEN);
+            src.get(copyBuffer, 0, n);
+            out.write(copyBuffer, 0, n);
+        }
+        return len;
+    }
+
+    /**
+     * Writes a CR that may have been held back, the next write is
+     * treated as the start of a new message.
+     */
+    public void finish() throws IOException {
+        out.finish();
+    }
+
+    /**
+     * The number of bytes of the transformed message written so far.
+     */
+    public long getCount() {
+        return out.getCount();
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Finishes the message and closes the underlying channel.
+     */
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            out.finish();
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -16,7 +16,13 @@
 
 package com.innoq.qmqp.codec;
 
-import java.io.ByteArrayOutputStream;
+import com.innoq.qmqp.util.BufferPool;
+import com.innoq.qmqp.util.BufferPools;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * Simple Encoder for 8 bit text messages as defined by http://cr.yp.to/proto/8bittext.html
@@ -27,6 +33,12 @@ class EightBitTextMessageCodec {
 
     private static final byte LF = 012;
     private static final byte CR = 015;
+    private static final int BUF_LEN = 8192;
+
+    // arrays shorter than this are scanned byte by byte
+    private static final int WORD_SCAN_THRESHOLD = 32;
+    private static final long CRS = 0x0d0d0d0d0d0d0d0dL;
+    private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
 
     /**
      * Transforms an array of bytes into an 8 bit text message in
@@ -36,46 +48,194 @@ class EightBitTextMessageCodec {
      *         and LF which are collapsed into single LFs
      */
     public byte[] toMessage(byte[] b) {
-        if (b != null) {
-            boolean lastByteWasCr = false;
-            final int len = b.length;
-            for (int i = 0; i < len; i++) {
-                if (b[i] == CR) {
-                    lastByteWasCr = true;
-                    continue;
-                }
-                if (lastByteWasCr && b[i] == LF) {
-                    return encodeToMessage(b, i - 1);
-                }
-                lastByteWasCr = false;
-            }
+        if (b == null) {
+            return null;
+        }
+        final ByteBuffer message = ByteBuffer.wrap(b);
+        final int len = messageLength(message);
+        if (len == b.length) {
+            return b;
+        }
+        final byte[] result = new byte[len];
+        writeMessage(message, ByteBuffer.wrap(result));
+        return result;
+    }
+
+    /**
+     * Determines the length of the 8 bit text message toMessage would
+     * create from the given bytes without creating it.
+     * @param b the message to scan, must not be null
+     */
+    public int messageLength(byte[] b) {
+        return messageLength(ByteBuffer.wrap(b));
+    }
+
+    /**
+     * Determines the length of the 8 bit text message the remaining
+     * bytes of the given buffer would be transformed into.
+     * @param b the message to scan, must not be null, its position is
+     *        not changed
+     */
+    public int messageLength(ByteBuffer b) {
+        final ByteBuffer words = words(b);
+        final int end = b.limit();
+        int crlfs = 0;
+        for (int i = indexOfCrLf(words, b.position(), end); i >= 0;
+             i = indexOfCrLf(words, i + 2, end)) {
+            crlfs++;
         }
-        return b;
+        return b.remaining() - crlfs;
+    }
+
+    /**
+     * Puts the 8 bit text message the remaining bytes of the given
+     * buffer would be transformed into into dest at its position.
+     * @param b the message to encode, must not be null, its position
+     *        is not changed
+     * @param dest buffer to write to, must have room for
+     *        messageLength(b) bytes
+     */
+    public void writeMessage(ByteBuffer b, ByteBuffer dest) {
+        final ByteBuffer words = words(b);
+        final ByteBuffer run = b.duplicate();
+        final int end = b.limit();
+        // start of the bytes that can be copied unchanged
+        int runStart = b.position();
+        for (int i = indexOfCrLf(words, runStart, end); i >= 0;
+             i = indexOfCrLf(words, i + 2, end)) {
+            // runs only move forward, so the limit never drops below
+            // the position
+            run.limit(i);
+            run.position(runStart);
+            dest.put(run);
+            runStart = i + 1;
+        }
+        run.limit(end);
+        run.position(runStart);
+        dest.put(run);
+    }
+
+    /**
+     * Determines the length of the 8 bit text message the given
+     * stream's content would be transformed into.
+     * @param in the message to scan, must not be null, is read until
+     *        it is exhausted but not closed
+     * @return the length of the message after collapsing all
+     *         sequences of CR and LF into single LFs
+     */
+    public long messageLength(InputStream in) throws IOException {
+        return transform(in, null);
+    }
+
+    /**
+     * Writes the given stream's content as 8 bit text message in
+     * which lines are separated by \012.
+     * @param in the message to encode, must not be null, is read
+     *        until it is exhausted but not closed
+     * @param out stream to write the encoded message to, must not be
+     *        null
+     * @return the number of bytes written
+     */
+    public long writeMessage(InputStream in, OutputStream out)
+        throws IOException {
+        return transform(in, out);
     }
 
-    private byte[] encodeToMessage(byte[] b, int knownGoodChars) {
-        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        if (knownGoodChars > 0) {
-            bos.write(b, 0, knownGoodChars);
+    /**
+     * Passes the stream's content through an EightBitTextOutputStream
+     * that writes to out unless out is null.
+     */
+    private long transform(InputStream in, OutputStream out)
+        throws IOException {
+        final EightBitTextOutputStream text = new EightBitTextOutputStream(out);
+        final BufferPool pool = BufferPools.getDefault();
+        final ByteBuffer pooled = pool.acquire(BUF_LEN);
+        try {
+            final byte[] buf = pooled.hasArray() ? pooled.array()
+                : new byte[BUF_LEN];
+            final int off = pooled.hasArray() ? pooled.arrayOffset() : 0;
+            final int max = pooled.hasArray() ? pooled.capacity() : BUF_LEN;
+            int len;
+            while ((len = in.read(buf, off, max)) >= 0) {
+                text.write(buf, off, len);
+            }
+        } finally {
+            pool.release(pooled);
         }
-        bos.write(LF);
-
-        boolean lastByteWasCr = false;
-        final int len = b.length;
-        for (int i = knownGoodChars + 2; i < len; i++) {
-            if (b[i] == CR) {
-                lastByteWasCr = true;
-                continue;
+        text.finish();
+        return text.getCount();
+    }
+
+    /**
+     * A little endian view of b used to scan it eight bytes at a time
+     * or null if b is too short to make this worthwhile.
+     */
+    static ByteBuffer words(byte[] b, int len) {
+        return len < WORD_SCAN_THRESHOLD ? null
+            : ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * A little endian view of b sharing its content, position and
+     * limit.
+     */
+    private static ByteBuffer words(ByteBuffer b) {
+        return b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Finds the next CR inside of b[from, end) that is followed by a
+     * LF.
+     * @param words view of b as created by {@link #words}, may be null
+     * @return the index of the CR or -1 if there is none
+     */
+    static int indexOfCrLf(byte[] b, ByteBuffer words, int from, int end) {
+        return words == null ? indexOfCrLfBytewise(b, from, end)
+            : indexOfCrLf(words, from, end);
+    }
+
+    /**
+     * Finds the next CR inside of the given range of absolute indices
+     * that is followed by a LF.
+     * @param words little endian buffer to scan
+     * @return the index of the CR or -1 if there is none
+     */
+    static int indexOfCrLf(ByteBuffer words, int from, int end) {
+        int i = from;
+        // the byte following each word's last byte must be in range
+        final int lastWordStart = end - 9;
+        for (; i <= lastWordStart; i += 8) {
+            // bytes that have been CRs are zero now
+            final long x = words.getLong(i) ^ CRS;
+            // sets the high bit of each zero byte and nothing else
+            long crs = ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+            while (crs != 0) {
+                final int cr = i + (Long.numberOfTrailingZeros(crs) >>> 3);
+                if (words.get(cr + 1) == LF) {
+                    return cr;
+                }
+                crs &= crs - 1;
             }
-            if (lastByteWasCr && b[i] != LF) {
-                bos.write(CR);
+        }
+        for (i++; i < end; i++) {
+            if (words.get(i) == LF && words.get(i - 1) == CR) {
+                return i - 1;
             }
-            bos.write(b[i]);
-            lastByteWasCr = false;
         }
-        if (lastByteWasCr) {
-            bos.write(CR);
+        return -1;
+    }
+
+    /**
+     * Finds the next CR inside of b[from, end) that is followed by a
+     * LF looking at one byte at a time.
+     * @return the index of the CR or -1 if there is none
+     */
+    static int indexOfCrLfBytewise(byte[] b, int from, int end) {
+        for (int i = from + 1; i < end; i++) {
+            if (b[i] == LF && b[i - 1] == CR) {
+                return i - 1;
+            }
         }
-        return bos.toByteArray();
+        return -1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,128 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Transforms everything written to it into an 8 bit text message as
+ * defined by http://cr.yp.to/proto/8bittext.html while passing it on
+ * to another stream.
+ *
+ * <p>Sequences of CR and LF are collapsed into single LFs even if
+ * they are split across several writes.  A CR ending a write is held
+ * back until the next write or {@link #finish finish} shows whether
+ * it is followed by a LF.</p>
+ *
+ * <p>If there is no stream to pass the message on to, the stream only
+ * counts the bytes of the transformed message.</p>
+ */
+public class EightBitTextOutputStream extends OutputStream {
+
+    private static final byte LF = 012;
+    private static final byte CR = 015;
+    private static final byte[] CR_ONLY = new byte[] { CR };
+
+    private final OutputStream out;
+    private boolean pendingCr;
+    private long count;
+
+    /**
+     * Creates a stream that passes the transformed message on.
+     * @param out the stream to write to, may be null to only count
+     *        the transformed bytes
+     */
+    public EightBitTextOutputStream(OutputStream out) {
+        this.out = out;
+    }
+
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return;
+        }
+        if (pendingCr && b[off] != LF) {
+            emit(CR_ONLY, 0, 1);
+        }
+        final int end = off + len;
+        final ByteBuffer words = EightBitTextMessageCodec.words(b, len);
+        // start of the bytes that can be written unchanged
+        int runStart = off;
+        for (int i = EightBitTextMessageCodec.indexOfCrLf(b, words, off, end);
+             i >= 0;
+             i = EightBitTextMessageCodec.indexOfCrLf(b, words, i + 2, end)) {
+            emit(b, runStart, i - runStart);
+            runStart = i + 1;
+        }
+        pendingCr = b[end - 1] == CR;
+        emit(b, runStart, (pendingCr ? end - 1 : end) - runStart);
+    }
+
+    /**
+     * Writes a CR that may have been held back, the next write is
+     * treated as the start of a new message.
+     */
+    public void finish() throws IOException {
+        if (pendingCr) {
+            pendingCr = false;
+            emit(CR_ONLY, 0, 1);
+        }
+    }
+
+    /**
+     * The number of bytes of the transformed message written so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * Finishes the message and closes the underlying stream.
+     */
+    public void close() throws IOException {
+        finish();
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    private void emit(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            if (out != null) {
+                out.write(b, off, len);
+            }
+            count += len;
+        }
+    }
+}
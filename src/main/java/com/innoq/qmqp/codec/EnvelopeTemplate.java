@@ -0,0 +1,71 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The message and sender of a request encoded in advance so they can
+ * be sent to many different recipients.
+ *
+ * <p>Only the recipients and the framing around the whole request are
+ * encoded for each send, the message is neither scanned nor copied
+ * again.  Templates are immutable and may be shared between
+ * threads.</p>
+ *
+ * @see RequestCodec#toTemplate(ByteBuffer, String)
+ */
+public final class EnvelopeTemplate {
+
+    private final ByteBuffer encoded;
+    private final String sender;
+    private final int messageLength;
+
+    /**
+     * @param encoded the netstrings of the message and the sender
+     * @param messageLength the length of the message inside of encoded
+     */
+    EnvelopeTemplate(ByteBuffer encoded, String sender, int messageLength) {
+        this.encoded = encoded.asReadOnlyBuffer();
+        this.sender = sender;
+        this.messageLength = messageLength;
+    }
+
+    /**
+     * The sender.
+     * <p>Will not be null</p>
+     */
+    public String getSender() {
+        return sender;
+    }
+
+    /**
+     * The length of the message after it has been encoded as 8 bit
+     * text message.
+     */
+    public int getMessageLength() {
+        return messageLength;
+    }
+
+    /**
+     * A read-only view of the netstrings of the message and the
+     * sender.
+     */
+    ByteBuffer getEncoded() {
+        return encoded.duplicate();
+    }
+}
@@ -17,7 +17,10 @@
 package com.innoq.qmqp.codec;
 
 import com.innoq.qmqp.protocol.QMQPException;
-import java.lang.Math;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,10 +31,13 @@ import java.util.List;
  */
 class NetStringCodec {
 
-    private static final double LN10 = Math.log(10);
-
     private static final byte COLON = ':';
     private static final byte COMMA = ',';
+    /**
+     * Size of the first array allocated for content whose length has
+     * been announced but hasn't arrived yet.
+     */
+    static final int INITIAL_CONTENT_LENGTH = 8192;
 
     /**
      * Creates a new byte-array containing the given bytes encoded as
@@ -44,7 +50,7 @@ class NetStringCodec {
             throw new IllegalArgumentException("input must not be null");
         }
         final int len = orig.length;
-        final int exp = digitsInNumber(len);
+        final int exp = digits(len);
         // (length marker takes exp + 1 bytes) + colon + original bytes + comma
         final int resLen = exp + 2 + len;
         final byte[] result = new byte[resLen];
@@ -60,6 +66,69 @@ class NetStringCodec {
         return result;
     }
 
+    /**
+     * Creates the start of a netstring with the given length, i.e.
+     * the length marker followed by a colon.
+     * @param length the length of the netstring's content, must not
+     *        be negative
+     */
+    public byte[] header(long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be"
+                                               + " negative");
+        }
+        final byte[] result = new byte[digits(length) + 1];
+        writeHeader(length, result, 0);
+        return result;
+    }
+
+    /**
+     * Writes the start of a netstring with the given length, i.e.
+     * the length marker followed by a colon, into dest.
+     * @param length the length of the netstring's content, must not
+     *        be negative
+     * @param dest array to write to, must have room for the length
+     *        marker and colon starting at off
+     * @return the index following the colon inside of dest
+     */
+    public int writeHeader(long length, byte[] dest, int off) {
+        final int digits = digits(length);
+        long remaining = length;
+        for (int i = off + digits - 1; i >= off; i--) {
+            dest[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        dest[off + digits] = COLON;
+        return off + digits + 1;
+    }
+
+    /**
+     * Puts the start of a netstring with the given length, i.e. the
+     * length marker followed by a colon, into dest at its position.
+     * @param length the length of the netstring's content, must not
+     *        be negative
+     * @param dest buffer to write to, must have room for the length
+     *        marker and colon
+     */
+    public void writeHeader(long length, ByteBuffer dest) {
+        final int digits = digits(length);
+        final int off = dest.position();
+        long remaining = length;
+        for (int i = off + digits - 1; i >= off; i--) {
+            dest.put(i, (byte) ('0' + remaining % 10));
+            remaining /= 10;
+        }
+        dest.position(off + digits);
+        dest.put(COLON);
+    }
+
+    /**
+     * The length of a netstring with content of the given length.
+     */
+    public long encodedLength(long length) {
+        return digits(length) + 2 + length;
+    }
+
     /**
      * Creates a new byte-array containing the "interpretation" of the
      * given netstring.
@@ -68,11 +137,105 @@ class NetStringCodec {
      * @throws QMQPException if the netstring is malformed
      */
     public byte[] fromNetString(byte[] netstring) throws QMQPException {
-        NetStringResult result = readNetString(netstring, 0);
-        if (netstring.length != result.endOffset) {
-            throw new QMQPException("Length mismatch in netstring");
+        if (null == netstring) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        return copy(netstring,
+                    readSingleNetString(netstring, 0, netstring.length));
+    }
+
+    /**
+     * Provides a read-only view of the "interpretation" of the netstring
+     * occupying the given range of input without copying it.
+     * @param netstring array containing the netstring, must not be
+     *        null and must not be modified while the view is in use
+     * @return the interpretation of the netstring, will not be null
+     * @throws QMQPException if the netstring is malformed
+     */
+    public ByteBuffer fromNetStringView(byte[] netstring, int offset,
+                                        int length) throws QMQPException {
+        return view(netstring, readSingleNetString(netstring, offset,
+                                                   offset + length));
+    }
+
+    /**
+     * Reads exactly one netstring from the given stream and returns
+     * its "interpretation" without reading past the terminating
+     * comma.
+     * @param in the stream to read from, must not be null
+     * @param maxLength the maximum length of the interpretation
+     * @return the interpretation of the netstring, will not be null
+     * @throws EOFException if the stream ends before the netstring is
+     *         complete
+     * @throws QMQPException if the netstring is malformed or longer
+     *         than maxLength
+     */
+    public byte[] readNetString(InputStream in, int maxLength)
+        throws IOException, QMQPException {
+        return readContent(in, readLength(in, maxLength));
+    }
+
+    /**
+     * Reads the length of a netstring from the given stream up to and
+     * including the colon following it.
+     * @param in the stream to read from, must not be null
+     * @param maxLength the maximum length of the interpretation
+     * @return the length of the interpretation
+     * @throws EOFException if the stream ends before the colon
+     * @throws QMQPException if the length is malformed or bigger than
+     *         maxLength
+     */
+    public int readLength(InputStream in, int maxLength)
+        throws IOException, QMQPException {
+        if (null == in) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        int accu = 0, digits = 0, b;
+        while ((b = read(in)) != COLON) {
+            accu = addDigit(accu, b, maxLength);
+            digits++;
+        }
+        if (digits == 0) {
+            throw new QMQPException("missing length");
+        }
+        return accu;
+    }
+
+    /**
+     * Reads the "interpretation" of a netstring whose length has been
+     * read by {@link #readLength readLength} as well as the
+     * terminating comma.
+     *
+     * <p>Memory is allocated as the content arrives, not up front for
+     * the announced length.</p>
+     * @param in the stream to read from, must not be null
+     * @param length the length returned by readLength
+     * @return the interpretation of the netstring, will not be null
+     * @throws EOFException if the stream ends before the netstring is
+     *         complete
+     * @throws QMQPException if the comma is missing
+     */
+    public byte[] readContent(InputStream in, int length)
+        throws IOException, QMQPException {
+        if (null == in) {
+            throw new IllegalArgumentException("input must not be null");
         }
-        return result.data;
+        byte[] result = new byte[Math.min(length, INITIAL_CONTENT_LENGTH)];
+        int off = 0;
+        while (off < length) {
+            if (off == result.length) {
+                result = grow(result, length);
+            }
+            int len = in.read(result, off, result.length - off);
+            if (len < 0) {
+                throw new EOFException("netstring is incomplete");
+            }
+            off += len;
+        }
+        if (read(in) != COMMA) {
+            throw new QMQPException("Missing comma in netstring");
+        }
+        return result;
     }
 
     /**
@@ -90,38 +253,123 @@ class NetStringCodec {
         final int len = netstrings.length;
         int nextOffset = 0;
         while (nextOffset < len) {
-            NetStringResult oneString = readNetString(netstrings, nextOffset);
-            result.add(oneString.data);
+            NetStringResult oneString =
+                readNetString(netstrings, nextOffset, len);
+            result.add(copy(netstrings, oneString));
             nextOffset = oneString.endOffset;
         }
         return result.toArray(new byte[0][]);
     }
 
-    private int digitsInNumber(int number) {
-        return number == 0 ? 1 : ((int) (Math.log(number) / LN10) + 1);
+    /**
+     * Assumes the given range of input consists of concatenated
+     * netstrings, splits them and returns read-only views of the
+     * "interpretations" without copying them.
+     * @param netstrings array containing the netstrings to decode,
+     *        must not be null and must not be modified while the views
+     *        are in use
+     * @return the interpretations of the netstrings, will not be null
+     * @throws QMQPException if any of the netstrings is malformed
+     */
+    public ByteBuffer[] splitNetStringViews(byte[] netstrings, int offset,
+                                            int length)
+        throws QMQPException {
+        if (null == netstrings) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        List<ByteBuffer> result = new ArrayList<ByteBuffer>();
+        final int end = offset + length;
+        int nextOffset = offset;
+        while (nextOffset < end) {
+            NetStringResult oneString =
+                readNetString(netstrings, nextOffset, end);
+            result.add(view(netstrings, oneString));
+            nextOffset = oneString.endOffset;
+        }
+        return result.toArray(new ByteBuffer[0]);
+    }
+
+    /**
+     * The number of decimal digits of a non-negative number.
+     */
+    private static int digits(long number) {
+        int digits = 1;
+        for (long n = number; n >= 10; n /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int read(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("netstring is incomplete");
+        }
+        return b;
+    }
+
+    private static int addDigit(int accu, int digit, int maxLength)
+        throws QMQPException {
+        if (digit < '0' || digit > '9') {
+            throw new QMQPException("Missing colon in netstring");
+        }
+        final long result = accu * 10L + (digit - '0');
+        if (result > maxLength) {
+            throw new QMQPException("netstring is longer than " + maxLength
+                                    + " bytes");
+        }
+        return (int) result;
+    }
+
+    private NetStringResult readSingleNetString(byte[] input, int start,
+                                                int end) {
+        NetStringResult result = readNetString(input, start, end);
+        if (end != result.endOffset) {
+            throw new QMQPException("Length mismatch in netstring");
+        }
+        return result;
+    }
+
+    private static byte[] copy(byte[] input, NetStringResult r) {
+        byte[] result = new byte[r.dataLength];
+        if (r.dataLength > 0) {
+            System.arraycopy(input, r.dataStart, result, 0, r.dataLength);
+        }
+        return result;
+    }
+
+    private static ByteBuffer view(byte[] input, NetStringResult r) {
+        return ByteBuffer.wrap(input, r.dataStart, r.dataLength).slice()
+            .asReadOnlyBuffer();
     }
 
     /**
-     * Decodes a netstring that is contained inside given input and
+     * Locates a netstring that is contained inside given input and
      * starts at index startOffset)
      * @param input data containing the netstring
      * @param startOffset start-index of the netstriung to decode
      *        inside input
-     * @return the interpretation of the netstring and the index of
-     *         the first byte after the decoded netstring.
+     * @param inputLength index of the first byte after the data
+     *        the netstring must be contained in
+     * @return the location of the netstring's interpretation and the
+     *         index of the first byte after the decoded netstring.
      */
-    private NetStringResult readNetString(byte[] input, int startOffset) {
+    private NetStringResult readNetString(byte[] input, int startOffset,
+                                          int inputLength) {
         if (null == input) {
             throw new IllegalArgumentException("input must not be null");
         }
+        if (startOffset < 0 || inputLength > input.length) {
+            throw new IllegalArgumentException("range exceeds input");
+        }
 
-        final int inputLength = input.length;
         /* minimal netsting is "0:," */
         if (inputLength - startOffset < 3) {
             throw new QMQPException("netstring too small");
         }
 
-        final NetStringInfo info = parseLength(input, startOffset);
+        final NetStringInfo info =
+            parseLength(input, startOffset, inputLength);
         if (input[info.dataStart - 1] != COLON) {
             throw new QMQPException("Missing colon in netstring");
         }
@@ -133,31 +381,44 @@ class NetStringCodec {
             throw new QMQPException("Missing comma in netstring");
         }
 
-        byte[] result = new byte[info.dataLength];
-        if (info.dataLength > 0) {
-            System.arraycopy(input, info.dataStart, result, 0, info.dataLength);
-        }
-        return new NetStringResult(result, comma + 1);
+        return new NetStringResult(info.dataStart, info.dataLength,
+                                   comma + 1);
     }
 
-    private NetStringInfo parseLength(byte[] netstring, int startOffset)
+    private NetStringInfo parseLength(byte[] netstring, int startOffset,
+                                      int len)
         throws QMQPException {
-        final int len = netstring.length;
         int accu = 0, i = startOffset;
         for (; i < len && netstring[i] >= '0' && netstring[i] <= '9'; i++) {
             accu = accu * 10 + (netstring[i] - '0');
+            if (accu > len) {
+                throw new QMQPException("Length mismatch in netstring");
+            }
         }
-        if (i == netstring.length) {
+        if (i == len) {
             throw new QMQPException("missing length");
         }
         return new NetStringInfo(i + 1, accu);
     }
 
+    /**
+     * Doubles the given array's size without exceeding max and copies
+     * the content.
+     */
+    static byte[] grow(byte[] content, int max) {
+        final int length = (int) Math.min(max, 2L * content.length);
+        final byte[] bigger = new byte[length];
+        System.arraycopy(content, 0, bigger, 0, content.length);
+        return bigger;
+    }
+
     private static final class NetStringResult {
-        private final byte[] data;
+        private final int dataStart;
+        private final int dataLength;
         private final int endOffset;
-        NetStringResult(byte[] result, int end) {
-            data = result;
+        NetStringResult(int start, int length, int end) {
+            dataStart = start;
+            dataLength = length;
             endOffset = end;
         }
     }
@@ -169,4 +430,5 @@ class NetStringCodec {
             dataLength = length;
         }
     }
+
 }
@@ -0,0 +1,215 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental decoder for a single netstring that arrives in chunks.
+ *
+ * <p>Each chunk is only looked at once, the decoder keeps its state
+ * between calls to {@link #decode decode} and never consumes bytes
+ * following the netstring's terminating comma.  Malformed input is
+ * reported by the result rather than by an exception.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public class NetStringDecoder {
+
+    /**
+     * Outcome of feeding a chunk to a decoder.
+     */
+    public static enum Result {
+        /** The netstring is incomplete, more input is required. */
+        NEED_MORE,
+        /** The netstring is complete. */
+        COMPLETE,
+        /** The input is not a valid netstring. */
+        MALFORMED
+    }
+
+    private static enum Phase { LENGTH, DATA, COMMA, DONE, ERROR }
+
+    private static final byte COLON = ':';
+    private static final byte COMMA = ',';
+
+    private final int maxLength;
+    private Phase phase;
+    private long length;
+    private int declared;
+    private int digits, filled;
+    private byte[] data;
+    private String error;
+
+    /**
+     * Creates a decoder for netstrings of any length.
+     */
+    public NetStringDecoder() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a decoder for netstrings whose content is at most
+     * maxLength bytes long.
+     */
+    public NetStringDecoder(int maxLength) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("maxLength must not be"
+                                               + " negative");
+        }
+        this.maxLength = maxLength;
+        reset();
+    }
+
+    /**
+     * Consumes bytes of the given chunk up to the end of the netstring.
+     * @param chunk the next bytes of input, must not be null,
+     *        remaining bytes following the netstring are left in the
+     *        buffer
+     * @return whether the netstring is complete
+     */
+    public Result decode(ByteBuffer chunk) {
+        while (chunk.hasRemaining()) {
+            switch (phase) {
+            case LENGTH:
+                readLength(chunk.get());
+                break;
+            case DATA:
+                // grows as content arrives rather than trusting the
+                // declared length
+                if (data == null) {
+                    data = new byte[Math.min(declared,
+                        NetStringCodec.INITIAL_CONTENT_LENGTH)];
+                } else if (filled == data.length) {
+                    data = NetStringCodec.grow(data, declared);
+                }
+                final int n = Math.min(chunk.remaining(), data.length - filled);
+                chunk.get(data, filled, n);
+                filled += n;
+                if (filled == declared) {
+                    phase = Phase.COMMA;
+                }
+                break;
+            case COMMA:
+                if (chunk.get() == COMMA) {
+                    phase = Phase.DONE;
+                } else {
+                    fail("Missing comma in netstring");
+                }
+                return result();
+            default:
+                return result();
+            }
+        }
+        return result();
+    }
+
+    /**
+     * Consumes bytes of the given chunk up to and including the colon
+     * that follows the netstring's length.
+     *
+     * <p>Unlike {@link #decode decode} this doesn't allocate any memory
+     * for the netstring's content, so the caller can inspect {@link
+     * #getLength getLength} first.</p>
+     * @param chunk the next bytes of input, must not be null,
+     *        remaining bytes following the colon are left in the
+     *        buffer
+     * @return the result of decoding so far
+     */
+    public Result decodeLength(ByteBuffer chunk) {
+        while (phase == Phase.LENGTH && chunk.hasRemaining()) {
+            readLength(chunk.get());
+        }
+        return result();
+    }
+
+    /**
+     * The length of the netstring's content.
+     * @return -1 until the colon following the length has been read
+     */
+    public int getLength() {
+        return declared;
+    }
+
+    /**
+     * The result of the last call to decode.
+     */
+    public Result result() {
+        switch (phase) {
+        case DONE:
+            return Result.COMPLETE;
+        case ERROR:
+            return Result.MALFORMED;
+        default:
+            return Result.NEED_MORE;
+        }
+    }
+
+    /**
+     * The "interpretation" of the netstring.
+     * @return null unless the netstring is complete
+     */
+    public byte[] getData() {
+        return phase == Phase.DONE ? data : null;
+    }
+
+    /**
+     * Describes why the input is malformed.
+     * @return null unless the input is malformed
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Prepares the decoder for the next netstring.
+     */
+    public void reset() {
+        phase = Phase.LENGTH;
+        length = 0;
+        declared = -1;
+        digits = filled = 0;
+        data = null;
+        error = null;
+    }
+
+    private void readLength(byte b) {
+        if (b == COLON) {
+            if (digits == 0) {
+                fail("missing length");
+                return;
+            }
+            declared = (int) length;
+            // allocated once content arrives, see decodeLength
+            data = length == 0 ? new byte[0] : null;
+            phase = length == 0 ? Phase.COMMA : Phase.DATA;
+        } else if (b >= '0' && b <= '9') {
+            length = length * 10 + (b - '0');
+            digits++;
+            if (length > maxLength) {
+                fail("netstring is longer than " + maxLength + " bytes");
+            }
+        } else {
+            fail("Missing colon in netstring");
+        }
+    }
+
+    private void fail(String message) {
+        phase = Phase.ERROR;
+        error = message;
+    }
+}
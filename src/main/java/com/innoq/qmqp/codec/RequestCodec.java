@@ -16,10 +16,29 @@
 
 package com.innoq.qmqp.codec;
 
+import com.innoq.qmqp.protocol.FileMessageSource;
+import com.innoq.qmqp.protocol.LargeEnvelopeRequest;
+import com.innoq.qmqp.protocol.LazyRequest;
 import com.innoq.qmqp.protocol.QMQPException;
 import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.StreamingRequest;
+import com.innoq.qmqp.util.BufferPool;
+import com.innoq.qmqp.util.BufferPools;
+import com.innoq.qmqp.util.IOUtil;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * De/encodes a QMQP Request from/to its network representation.
@@ -29,6 +48,8 @@ public class RequestCodec {
     private final NetStringCodec netString = new NetStringCodec();
     private final EightBitTextMessageCodec eightBit = new EightBitTextMessageCodec();
     private static final String ASCII = "ASCII";
+    private static final byte COMMA = ',';
+    private static final int BUF_LEN = 8192;
 
     /**
      * Encodes a QMQP Request to its network representation.
@@ -40,20 +61,445 @@ public class RequestCodec {
         if (r == null) {
             throw new IllegalArgumentException("input must not be null");
         }
-        final ByteArrayOutputStream inner = new ByteArrayOutputStream();
-        writeAsNetString(inner, eightBit.toMessage(r.getMessage()));
+        final ByteBuffer message = r.getMessageBuffer();
+        final int messageLength = eightBit.messageLength(message);
+        final long innerLength = netString.encodedLength(messageLength)
+            + envelopeLength(r.getSender(), r.getRecipientList());
+        final long total = netString.encodedLength(innerLength);
+        if (total > Integer.MAX_VALUE) {
+            throw new QMQPException("Request is too big to be encoded"
+                                    + " into an array");
+        }
+        final byte[] result = new byte[(int) total];
+        encode(r, message, messageLength, innerLength,
+               ByteBuffer.wrap(result));
+        return result;
+    }
+
+    /**
+     * Encodes a QMQP Request to its network representation as a
+     * sequence of buffers suitable for a gathering write.
+     *
+     * <p>The message itself is not copied unless it contains CRLF
+     * sequences that need to be collapsed, the other buffers only
+     * hold the netstring framing and the envelope.</p>
+     * @param r the request to encode, must not be null
+     * @return request in its network representation
+     */
+    public ByteBuffer[] toBuffers(Request r) {
+        return toBuffers(r, BufferPools.UNPOOLED);
+    }
+
+    /**
+     * Encodes a QMQP Request to its network representation as a
+     * sequence of buffers suitable for a gathering write taking the
+     * first buffer from the given pool.
+     *
+     * <p>If the whole request fits into a buffer recycled by the pool
+     * it is encoded into a single pooled buffer.  Otherwise the
+     * result looks like that of {@link #toBuffers(Request)} with the
+     * leading netstring framing held by a pooled buffer.</p>
+     *
+     * <p>The first buffer should be released to the pool once the
+     * request has been written, the others must not be released.</p>
+     * @param r the request to encode, must not be null
+     * @param pool the pool to take the first buffer from, must not be
+     *        null
+     * @return request in its network representation
+     */
+    public ByteBuffer[] toBuffers(Request r, BufferPool pool) {
+        if (r == null || pool == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        final ByteBuffer message = r.getMessageBuffer();
+        final int messageLength = eightBit.messageLength(message);
+        final long envelopeLength =
+            envelopeLength(r.getSender(), r.getRecipientList());
+        final long innerLength = netString.encodedLength(messageLength)
+            + envelopeLength;
+        final long total = netString.encodedLength(innerLength);
+        if (total <= pool.getMaxCapacity()) {
+            final ByteBuffer all = pool.acquire((int) total);
+            try {
+                encode(r, message, messageLength, innerLength, all);
+            } catch (RuntimeException ex) {
+                // e.g. a non-ASCII address, the caller can't release it
+                pool.release(all);
+                throw ex;
+            }
+            all.flip();
+            return new ByteBuffer[] { all };
+        }
+        if (envelopeLength > Integer.MAX_VALUE - 2) {
+            throw new QMQPException("Envelope is too big to be encoded"
+                                    + " into an array");
+        }
+        // the length markers and colons of both netstrings
+        final long headerLength = total - innerLength - 1
+            + netString.encodedLength(messageLength) - messageLength - 1;
+        final ByteBuffer header = pool.acquire((int) headerLength);
         try {
-            writeAsNetString(inner, r.getSender().getBytes(ASCII));
-            for (String s : r.getRecipients()) {
-                writeAsNetString(inner, s.getBytes(ASCII));
+            netString.writeHeader(innerLength, header);
+            netString.writeHeader(messageLength, header);
+            header.flip();
+            ByteBuffer body = message;
+            if (messageLength != message.remaining()) {
+                body = ByteBuffer.allocate(messageLength);
+                eightBit.writeMessage(message, body);
+                body.flip();
             }
-        } catch (UnsupportedEncodingException uex) {
-            // plain impossible
-            throw new RuntimeException("Huh, ASCII is not supported?",
-                                       uex);
+            final ByteBuffer trailer =
+                ByteBuffer.allocate((int) envelopeLength + 2);
+            trailer.put(COMMA);
+            putEnvelope(r.getSender(), r.getRecipientList(), trailer);
+            trailer.put(COMMA);
+            trailer.flip();
+            return new ByteBuffer[] { header, body, trailer };
+        } catch (RuntimeException ex) {
+            pool.release(header);
+            throw ex;
+        }
+    }
+
+    /**
+     * Encodes the message and sender shared by many requests so they
+     * can be sent via {@link #toBuffers(EnvelopeTemplate, String[],
+     * BufferPool)} without being encoded again.
+     * @param message the raw and unencoded message, must not be null
+     * @param sender the envelope sender, must not be null and must not
+     *        contain non-ASCII chars
+     * @return the encoded template
+     */
+    public EnvelopeTemplate toTemplate(byte[] message, String sender) {
+        if (message == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        return toTemplate(ByteBuffer.wrap(message), sender);
+    }
+
+    /**
+     * Encodes the message and sender shared by many requests so they
+     * can be sent via {@link #toBuffers(EnvelopeTemplate, String[],
+     * BufferPool)} without being encoded again.
+     * @param message the raw and unencoded message, its remaining
+     *        bytes are copied into the template, must not be null
+     * @param sender the envelope sender, must not be null and must not
+     *        contain non-ASCII chars
+     * @return the encoded template
+     */
+    public EnvelopeTemplate toTemplate(ByteBuffer message, String sender) {
+        if (message == null || sender == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        final int messageLength = eightBit.messageLength(message);
+        final long length = netString.encodedLength(messageLength)
+            + netString.encodedLength(sender.length());
+        if (length > Integer.MAX_VALUE) {
+            throw new QMQPException("Message is too big to be encoded"
+                                    + " into a template");
+        }
+        final ByteBuffer encoded = ByteBuffer.allocate((int) length);
+        netString.writeHeader(messageLength, encoded);
+        eightBit.writeMessage(message, encoded);
+        encoded.put(COMMA);
+        putAsNetString(sender, encoded);
+        encoded.flip();
+        return new EnvelopeTemplate(encoded, sender, messageLength);
+    }
+
+    /**
+     * Encodes a QMQP Request made of a template and the given
+     * recipients as a sequence of buffers suitable for a gathering
+     * write.
+     *
+     * <p>The first buffer has been acquired from the pool and should
+     * be released once the request has been written, the others must
+     * not be released.  The template's content is not copied.</p>
+     * @param t the template, must not be null
+     * @param recipients the envelope recipient addresses, at least
+     *        one is required, each must not contain non-ASCII chars
+     * @param pool the pool to take the first buffer from, must not be
+     *        null
+     * @return request in its network representation
+     */
+    public ByteBuffer[] toBuffers(EnvelopeTemplate t, String[] recipients,
+                                  BufferPool pool) {
+        if (t == null || pool == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        if (recipients == null || recipients.length == 0) {
+            throw new IllegalArgumentException("At least one recipient is"
+                                               + " required.");
+        }
+        final List<String> list = Arrays.asList(recipients);
+        final ByteBuffer encoded = t.getEncoded();
+        final long recipientsLength = addressesLength(list);
+        final long innerLength = encoded.remaining() + recipientsLength;
+        final long headerLength =
+            netString.encodedLength(innerLength) - innerLength - 1;
+        if (recipientsLength > Integer.MAX_VALUE - headerLength - 1) {
+            throw new QMQPException("Envelope is too big to be encoded"
+                                    + " into an array");
+        }
+        final ByteBuffer pooled =
+            pool.acquire((int) (headerLength + recipientsLength + 1));
+        try {
+            netString.writeHeader(innerLength, pooled);
+            for (String s : list) {
+                putAsNetString(s, pooled);
+            }
+        } catch (RuntimeException ex) {
+            // e.g. a non-ASCII recipient, the caller can't release it
+            pool.release(pooled);
+            throw ex;
+        }
+        pooled.put(COMMA);
+        pooled.flip();
+        // both ends of the request share the pooled buffer
+        final ByteBuffer trailer = pooled.duplicate();
+        trailer.position((int) headerLength);
+        pooled.limit((int) headerLength);
+        return new ByteBuffer[] { pooled, encoded, trailer };
+    }
+
+    /**
+     * Determines the length of a large envelope request's envelope -
+     * the netstrings of sender and recipients - by iterating over the
+     * recipients once.
+     * @param r the request to scan, must not be null
+     * @return the length of the encoded envelope
+     * @throws IllegalArgumentException if there are no recipients or
+     *         any of them is null or contains non-ASCII chars
+     */
+    public long envelopeLength(LargeEnvelopeRequest r) {
+        if (r == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        long length = netString.encodedLength(r.getSender().length());
+        boolean empty = true;
+        for (byte[] address : r.getRecipients()) {
+            if (address == null) {
+                throw new IllegalArgumentException("Recipient must not be"
+                                                   + " null.");
+            }
+            for (byte b : address) {
+                if (b < 0) {
+                    throw new IllegalArgumentException("Recipient contains"
+                                                       + " non-ASCII"
+                                                       + " characters");
+                }
+            }
+            length += netString.encodedLength(address.length);
+            empty = false;
+        }
+        if (empty) {
+            throw new IllegalArgumentException("At least one recipient is"
+                                               + " required.");
+        }
+        return length;
+    }
+
+    /**
+     * Writes a large envelope request in its network representation
+     * to the given stream, iterating over the recipients twice.
+     * @param r the request to encode, must not be null
+     * @param out the stream to write to, must not be null, should be
+     *        buffered
+     * @throws QMQPException if the recipients change while they are
+     *         written
+     */
+    public void toNetwork(LargeEnvelopeRequest r, OutputStream out)
+        throws IOException {
+        toNetwork(r, envelopeLength(r), out);
+    }
+
+    /**
+     * Writes a large envelope request in its network representation
+     * to the given stream using a previously determined envelope
+     * length.
+     *
+     * <p>The recipients are written to the stream as they are
+     * iterated, nothing but the message - if it contains CRLF
+     * sequences that need to be collapsed - is copied.</p>
+     * @param r the request to encode, must not be null
+     * @param envelopeLength the result of {@link
+     *        #envelopeLength(LargeEnvelopeRequest)} for this request
+     * @param out the stream to write to, must not be null, should be
+     *        buffered
+     * @throws QMQPException if the recipients don't match the given
+     *         length
+     */
+    public void toNetwork(LargeEnvelopeRequest r, long envelopeLength,
+                          OutputStream out) throws IOException {
+        if (r == null || out == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        ByteBuffer message = r.getMessageBuffer();
+        final int messageLength = eightBit.messageLength(message);
+        if (messageLength != message.remaining()) {
+            final ByteBuffer collapsed = ByteBuffer.allocate(messageLength);
+            eightBit.writeMessage(message, collapsed);
+            collapsed.flip();
+            message = collapsed;
+        }
+        // room for the longest length marker and its colon
+        final byte[] header = new byte[20];
+        out.write(header, 0,
+                  netString.writeHeader(netString.encodedLength(messageLength)
+                                        + envelopeLength, header, 0));
+        out.write(header, 0, netString.writeHeader(messageLength, header, 0));
+        IOUtil.write(out, message);
+        out.write(COMMA);
+        final String sender = r.getSender();
+        long remaining = envelopeLength
+            - netString.encodedLength(sender.length());
+        out.write(header, 0, netString.writeHeader(sender.length(), header,
+                                                    0));
+        for (int i = 0; i < sender.length(); i++) {
+            out.write(sender.charAt(i));
+        }
+        out.write(COMMA);
+        for (byte[] address : r.getRecipients()) {
+            remaining -= netString.encodedLength(address.length);
+            if (remaining < 0) {
+                break;
+            }
+            out.write(header, 0, netString.writeHeader(address.length,
+                                                        header, 0));
+            out.write(address);
+            out.write(COMMA);
+        }
+        if (remaining != 0) {
+            throw new QMQPException("Recipients have changed while they"
+                                    + " were sent");
+        }
+        out.write(COMMA);
+    }
+
+    /**
+     * Determines the length of a streaming request's message after it
+     * has been encoded as 8 bit text message by reading the whole
+     * message once.
+     * @param r the request to scan, must not be null
+     * @return the length of the encoded message without netstring
+     *         framing
+     */
+    public long messageLength(StreamingRequest r) throws IOException {
+        if (r == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        InputStream in = r.getMessageSource().openStream();
+        try {
+            return eightBit.messageLength(in);
+        } finally {
+            IOUtil.close(in, true);
+        }
+    }
+
+    /**
+     * Writes a streaming QMQP Request in its network representation
+     * to the given stream, reading the message twice.
+     * @param r the request to encode, must not be null
+     * @param out the stream to write to, must not be null
+     * @throws QMQPException if the message changes while it is read
+     */
+    public void toNetwork(StreamingRequest r, OutputStream out)
+        throws IOException {
+        toNetwork(r, messageLength(r), out);
+    }
+
+    /**
+     * Writes a streaming QMQP Request in its network representation
+     * to the given stream using a previously determined message
+     * length.
+     * @param r the request to encode, must not be null
+     * @param messageLength the result of {@link
+     *        #messageLength(StreamingRequest)} for this request
+     * @param out the stream to write to, must not be null
+     * @throws QMQPException if the message doesn't match the given
+     *         length
+     */
+    public void toNetwork(StreamingRequest r, long messageLength,
+                          OutputStream out) throws IOException {
+        if (r == null || out == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        final ByteArrayOutputStream envelope =
+            encodeEnvelope(r.getSender(), r.getRecipients());
+        out.write(netString.header(netString.encodedLength(messageLength)
+                                   + envelope.size()));
+        out.write(netString.header(messageLength));
+        InputStream in = r.getMessageSource().openStream();
+        try {
+            if (eightBit.writeMessage(in, out) != messageLength) {
+                throw new QMQPException("Message has changed while it was"
+                                        + " sent");
+            }
+        } finally {
+            IOUtil.close(in, true);
+        }
+        out.write(COMMA);
+        envelope.writeTo(out);
+        out.write(COMMA);
+    }
+
+    /**
+     * Writes a streaming QMQP Request in its network representation
+     * to the given channel using a previously determined message
+     * length.
+     *
+     * <p>If the message is read from a file and doesn't contain any
+     * CRLF sequences it is transferred directly from the file to the
+     * channel, which may avoid copying it to user space at all.</p>
+     * @param r the request to encode, must not be null
+     * @param messageLength the result of {@link
+     *        #messageLength(StreamingRequest)} for this request
+     * @param out the channel to write to, must not be null and must be
+     *        in blocking mode
+     * @throws QMQPException if the message doesn't match the given
+     *         length
+     */
+    public void toNetwork(StreamingRequest r, long messageLength,
+                          WritableByteChannel out) throws IOException {
+        if (r == null || out == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        if (!(r.getMessageSource() instanceof FileMessageSource)) {
+            writeBuffered(r, messageLength, out);
+            return;
+        }
+        FileInputStream in =
+            new FileInputStream(((FileMessageSource) r.getMessageSource())
+                                .getFile());
+        try {
+            final FileChannel file = in.getChannel();
+            if (file.size() != messageLength) {
+                // message contains CRLFs that need to be collapsed (or
+                // has changed)
+                IOUtil.close(in, true);
+                writeBuffered(r, messageLength, out);
+                return;
+            }
+            final ByteArrayOutputStream envelope =
+                encodeEnvelope(r.getSender(), r.getRecipients());
+            writeFully(out, netString.header(netString
+                                             .encodedLength(messageLength)
+                                             + envelope.size()));
+            writeFully(out, netString.header(messageLength));
+            long position = 0;
+            while (position < messageLength) {
+                long transferred =
+                    file.transferTo(position, messageLength - position, out);
+                if (transferred <= 0 && file.size() < messageLength) {
+                    throw new QMQPException("Message has changed while it"
+                                            + " was sent");
+                }
+                position += transferred;
+            }
+            writeFully(out, trailer(envelope));
+        } finally {
+            IOUtil.close(in, true);
         }
-        byte[] body = inner.toByteArray();
-        return netString.toNetString(body);
     }
 
     /**
@@ -63,23 +509,294 @@ public class RequestCodec {
      * @throws QMQPException if the netstring is malformed
      */
     public Request fromNetwork(byte[] request) {
-        byte[][] parts =
-            netString.splitNetStrings(netString.fromNetString(request));
+        return lazyFromNetwork(request).toRequest();
+    }
+
+    /**
+     * Decodes a QMQP Request from its network representation without
+     * copying any part of it.
+     *
+     * <p>The request refers to the given array which must not be
+     * modified while the request is in use.</p>
+     * @param request the netstring to decode, must not be null
+     * @return the contained request, will not be null
+     * @throws QMQPException if the netstring is malformed
+     */
+    public LazyRequest lazyFromNetwork(byte[] request) {
+        if (request == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        return lazyFromNetwork(request, 0, request.length);
+    }
+
+    /**
+     * Decodes a QMQP Request from the given range of an array without
+     * copying any part of it.
+     *
+     * <p>The request refers to the given array which must not be
+     * modified while the request is in use.</p>
+     * @param request array containing the netstring to decode, must
+     *        not be null
+     * @return the contained request, will not be null
+     * @throws QMQPException if the netstring is malformed
+     */
+    public LazyRequest lazyFromNetwork(byte[] request, int offset,
+                                       int length) {
+        final ByteBuffer body =
+            netString.fromNetStringView(request, offset, length);
+        // the outer netstring's content ends right before the final comma
+        final int bodyStart = offset + length - 1 - body.remaining();
+        return lazyFromParts(netString.splitNetStringViews(request,
+                                                           bodyStart,
+                                                           body.remaining()));
+    }
+
+    /**
+     * Decodes a QMQP Request from the "interpretation" of its
+     * netstring, e.g. as provided by a {@link NetStringDecoder},
+     * without copying any part of it.
+     *
+     * <p>The request refers to the given array which must not be
+     * modified while the request is in use.</p>
+     * @param content the netstring's content, must not be null
+     * @return the contained request, will not be null
+     * @throws QMQPException if the content is malformed
+     */
+    public LazyRequest lazyFromContent(byte[] content) {
+        if (content == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        return lazyFromParts(netString.splitNetStringViews(content, 0,
+                                                           content.length));
+    }
+
+    /**
+     * Reads a QMQP Request from the given stream without reading past
+     * its end.
+     * @param in the stream to read from, must not be null, should be
+     *        buffered
+     * @param maxSize the maximum size of the request's content
+     * @return the request, will not be null
+     * @throws EOFException if the stream ends before the request is
+     *         complete
+     * @throws QMQPException if the request is malformed or longer than
+     *         maxSize
+     */
+    public LazyRequest lazyReadFrom(InputStream in, int maxSize)
+        throws IOException, QMQPException {
+        return lazyReadContent(in, readLength(in, maxSize));
+    }
+
+    /**
+     * Reads the length of a QMQP Request's content from the given
+     * stream, so the caller can decide whether to accept the request
+     * before any memory is allocated for it.
+     * @param in the stream to read from, must not be null, should be
+     *        buffered
+     * @param maxSize the maximum size of the request's content
+     * @return the length to pass to {@link #lazyReadContent
+     *         lazyReadContent}
+     * @throws EOFException if the stream ends before the length is
+     *         complete
+     * @throws QMQPException if the length is malformed or bigger than
+     *         maxSize
+     */
+    public int readLength(InputStream in, int maxSize)
+        throws IOException, QMQPException {
+        return netString.readLength(in, maxSize);
+    }
+
+    /**
+     * Reads the content of a QMQP Request whose length has been read
+     * by {@link #readLength readLength}.
+     * @param in the stream to read from, must not be null
+     * @param length the length returned by readLength
+     * @return the request, will not be null
+     * @throws EOFException if the stream ends before the request is
+     *         complete
+     * @throws QMQPException if the request is malformed
+     */
+    public LazyRequest lazyReadContent(InputStream in, int length)
+        throws IOException, QMQPException {
+        final byte[] content = netString.readContent(in, length);
+        return lazyFromParts(netString.splitNetStringViews(content, 0,
+                                                           content.length));
+    }
+
+    /**
+     * Encodes a received request back into its network
+     * representation without copying the message.
+     *
+     * <p>The message is used as received, i.e. it is expected to be an
+     * 8 bit text message already.  The result consists of the framing
+     * in front of the message, a view of the message and the
+     * envelope.</p>
+     * @param r the request to encode, must not be null
+     * @return request in its network representation
+     */
+    public ByteBuffer[] toBuffers(LazyRequest r) {
+        if (r == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        final int messageLength = r.getMessageLength();
+        final int count = r.getRecipientCount();
+        long envelopeLength =
+            netString.encodedLength(r.getSenderBuffer().remaining());
+        for (int i = 0; i < count; i++) {
+            envelopeLength +=
+                netString.encodedLength(r.getRecipientBuffer(i).remaining());
+        }
+        if (envelopeLength > Integer.MAX_VALUE - 2) {
+            throw new QMQPException("Envelope is too big to be encoded"
+                                    + " into an array");
+        }
+        final long innerLength = netString.encodedLength(messageLength)
+            + envelopeLength;
+        final ByteBuffer header = ByteBuffer
+            .allocate((int) (netString.encodedLength(innerLength)
+                             - innerLength - 1
+                             + netString.encodedLength(messageLength)
+                             - messageLength - 1));
+        netString.writeHeader(innerLength, header);
+        netString.writeHeader(messageLength, header);
+        header.flip();
+        final ByteBuffer trailer =
+            ByteBuffer.allocate((int) envelopeLength + 2);
+        trailer.put(COMMA);
+        putRawNetString(r.getSenderBuffer(), trailer);
+        for (int i = 0; i < count; i++) {
+            putRawNetString(r.getRecipientBuffer(i), trailer);
+        }
+        trailer.put(COMMA);
+        trailer.flip();
+        return new ByteBuffer[] { header, r.getMessageBuffer(), trailer };
+    }
+
+    private void putRawNetString(ByteBuffer content, ByteBuffer dest) {
+        netString.writeHeader(content.remaining(), dest);
+        dest.put(content);
+        dest.put(COMMA);
+    }
+
+    private static LazyRequest lazyFromParts(ByteBuffer[] parts) {
         if (parts.length < 3) {
             throw new QMQPException("Request is malformed");
         }
+        final ByteBuffer[] recipients = new ByteBuffer[parts.length - 2];
+        System.arraycopy(parts, 2, recipients, 0, recipients.length);
+        return new LazyRequest(parts[0], parts[1], recipients);
+    }
+
+    private ByteArrayOutputStream encodeEnvelope(String sender,
+                                                 String[] recipients) {
+        final ByteArrayOutputStream envelope = new ByteArrayOutputStream();
         try {
-            String sender = new String(parts[1], ASCII);
-            String[] recipients = new String[parts.length - 2];
-            for (int i = 2; i < parts.length; i++) {
-                recipients[i - 2] = new String(parts[i], ASCII);
+            writeAsNetString(envelope, sender.getBytes(ASCII));
+            for (String s : recipients) {
+                writeAsNetString(envelope, s.getBytes(ASCII));
             }
-            return new Request(parts[0], sender, recipients);
         } catch (UnsupportedEncodingException uex) {
             // plain impossible
             throw new RuntimeException("Huh, ASCII is not supported?",
                                        uex);
         }
+        return envelope;
+    }
+
+    private void writeBuffered(StreamingRequest r, long messageLength,
+                               WritableByteChannel out) throws IOException {
+        final BufferedOutputStream bos =
+            new BufferedOutputStream(Channels.newOutputStream(out), BUF_LEN);
+        toNetwork(r, messageLength, bos);
+        bos.flush();
+    }
+
+    /**
+     * Puts the whole request into dest.
+     */
+    private void encode(Request r, ByteBuffer message, int messageLength,
+                        long innerLength, ByteBuffer dest) {
+        netString.writeHeader(innerLength, dest);
+        netString.writeHeader(messageLength, dest);
+        eightBit.writeMessage(message, dest);
+        dest.put(COMMA);
+        putEnvelope(r.getSender(), r.getRecipientList(), dest);
+        dest.put(COMMA);
+    }
+
+    /**
+     * The length of the envelope's netstrings.
+     */
+    private long envelopeLength(String sender, List<String> recipients) {
+        return netString.encodedLength(sender.length())
+            + addressesLength(recipients);
+    }
+
+    private long addressesLength(List<String> addresses) {
+        long length = 0;
+        for (String s : addresses) {
+            if (s == null) {
+                throw new IllegalArgumentException("Recipient must not be"
+                                                   + " null.");
+            }
+            length += netString.encodedLength(s.length());
+        }
+        return length;
+    }
+
+    /**
+     * Puts the addresses as netstrings into dest.
+     */
+    private void putEnvelope(String sender, List<String> recipients,
+                             ByteBuffer dest) {
+        putAsNetString(sender, dest);
+        for (String s : recipients) {
+            putAsNetString(s, dest);
+        }
+    }
+
+    /**
+     * Puts an address as netstring into dest, checking it only
+     * consists of ASCII characters on the way.
+     */
+    private void putAsNetString(String address, ByteBuffer dest) {
+        final int len = address.length();
+        netString.writeHeader(len, dest);
+        for (int i = 0; i < len; i++) {
+            final char c = address.charAt(i);
+            if (c > 0x7f) {
+                throw new IllegalArgumentException("Address '" + address
+                                                   + "' contains non-ASCII"
+                                                   + " characters");
+            }
+            dest.put((byte) c);
+        }
+        dest.put(COMMA);
+    }
+
+    /**
+     * The comma terminating the message netstring, the envelope and
+     * the comma terminating the whole request.
+     */
+    private static byte[] trailer(ByteArrayOutputStream envelope) {
+        final ByteArrayOutputStream trailer =
+            new ByteArrayOutputStream(envelope.size() + 2);
+        trailer.write(COMMA);
+        writeFully(trailer, envelope.toByteArray());
+        trailer.write(COMMA);
+        return trailer.toByteArray();
+    }
+
+    private static void writeFully(ByteArrayOutputStream out, byte[] data) {
+        out.write(data, 0, data.length);
+    }
+
+    private static void writeFully(WritableByteChannel out, byte[] data)
+        throws IOException {
+        final ByteBuffer buf = ByteBuffer.wrap(data);
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
     }
 
     private void writeAsNetString(final ByteArrayOutputStream bos,
@@ -0,0 +1,241 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.codec;
+
+import com.innoq.qmqp.protocol.Request;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Incremental decoder for a QMQP Request that arrives in chunks.
+ *
+ * <p>Decodes the netstrings nested inside of the request as they
+ * arrive, so the message is available before the envelope has been
+ * received and recipients are available one by one.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public class RequestDecoder {
+
+    private static final String ASCII = "ASCII";
+    private static final byte COLON = ':';
+    private static final byte COMMA = ',';
+
+    private final int maxLength;
+    private final NetStringDecoder part = new NetStringDecoder();
+    private final List<String> recipients = new ArrayList<String>();
+    private NetStringDecoder.Result result;
+    // -1 while the outer length marker is being read
+    private long remaining;
+    private long length;
+    private int digits;
+    private byte[] message;
+    private String sender, error;
+
+    /**
+     * Creates a decoder for requests of any length.
+     */
+    public RequestDecoder() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a decoder for requests whose outer netstring's content
+     * is at most maxLength bytes long.
+     */
+    public RequestDecoder(int maxLength) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("maxLength must not be"
+                                               + " negative");
+        }
+        this.maxLength = maxLength;
+        reset();
+    }
+
+    /**
+     * Consumes bytes of the given chunk up to the end of the request.
+     * @param chunk the next bytes of input, must not be null,
+     *        remaining bytes following the request are left in the
+     *        buffer
+     * @return whether the request is complete
+     */
+    public NetStringDecoder.Result decode(ByteBuffer chunk) {
+        while (chunk.hasRemaining()
+               && result == NetStringDecoder.Result.NEED_MORE) {
+            if (remaining < 0) {
+                readLength(chunk.get());
+            } else if (remaining == 0) {
+                if (chunk.get() != COMMA) {
+                    fail("Missing comma in netstring");
+                } else if (recipients.isEmpty()) {
+                    fail("Request is malformed");
+                } else {
+                    result = NetStringDecoder.Result.COMPLETE;
+                }
+            } else {
+                readPart(chunk);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The result of the last call to decode.
+     */
+    public NetStringDecoder.Result result() {
+        return result;
+    }
+
+    /**
+     * The raw message.
+     * @return null unless the message has been received completely
+     */
+    public byte[] getMessage() {
+        return message;
+    }
+
+    /**
+     * The sender.
+     * @return null unless the sender has been received completely
+     */
+    public String getSender() {
+        return sender;
+    }
+
+    /**
+     * The recipients received so far.
+     */
+    public List<String> getRecipients() {
+        return Collections.unmodifiableList(recipients);
+    }
+
+    /**
+     * The request.
+     *
+     * <p>The request shares the array returned by {@link #getMessage
+     * getMessage} rather than copying it.</p>
+     * @return null unless the request is complete
+     */
+    public Request getRequest() {
+        if (result != NetStringDecoder.Result.COMPLETE) {
+            return null;
+        }
+        return Request.withSharedMessage(message, sender,
+                                         recipients.toArray(
+                                             new String[recipients.size()]));
+    }
+
+    /**
+     * Describes why the input is malformed.
+     * @return null unless the input is malformed
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Prepares the decoder for the next request.
+     */
+    public void reset() {
+        part.reset();
+        recipients.clear();
+        result = NetStringDecoder.Result.NEED_MORE;
+        remaining = -1;
+        length = 0;
+        digits = 0;
+        message = null;
+        sender = error = null;
+    }
+
+    private void readLength(byte b) {
+        if (b == COLON) {
+            if (digits == 0) {
+                fail("missing length");
+            } else {
+                remaining = length;
+            }
+        } else if (b >= '0' && b <= '9') {
+            length = length * 10 + (b - '0');
+            digits++;
+            if (length > maxLength) {
+                fail("netstring is longer than " + maxLength + " bytes");
+            }
+        } else {
+            fail("Missing colon in netstring");
+        }
+    }
+
+    private void readPart(ByteBuffer chunk) {
+        // the nested netstring must not extend beyond the outer one
+        final ByteBuffer view = chunk.slice();
+        if (view.remaining() > remaining) {
+            view.limit((int) remaining);
+        }
+        if (part.getLength() < 0) {
+            part.decodeLength(view);
+            // content and comma must fit, checked before any allocation
+            if (part.getLength() >= remaining - view.position()) {
+                consumed(chunk, view);
+                fail("Length mismatch in netstring");
+                return;
+            }
+        }
+        final NetStringDecoder.Result r = part.decode(view);
+        consumed(chunk, view);
+        if (r == NetStringDecoder.Result.MALFORMED) {
+            fail(part.getError());
+        } else if (r == NetStringDecoder.Result.COMPLETE) {
+            addPart(part.getData());
+            part.reset();
+        } else if (remaining == 0) {
+            fail("Length mismatch in netstring");
+        }
+    }
+
+    private void consumed(ByteBuffer chunk, ByteBuffer view) {
+        chunk.position(chunk.position() + view.position());
+        remaining -= view.position();
+    }
+
+    private void addPart(byte[] data) {
+        if (message == null) {
+            message = data;
+            return;
+        }
+        final String address;
+        try {
+            address = new String(data, ASCII);
+        } catch (UnsupportedEncodingException uex) {
+            // plain impossible
+            throw new RuntimeException("Huh, ASCII is not supported?",
+                                       uex);
+        }
+        if (sender == null) {
+            sender = address;
+        } else {
+            recipients.add(address);
+        }
+    }
+
+    private void fail(String reason) {
+        result = NetStringDecoder.Result.MALFORMED;
+        error = reason;
+    }
+}
@@ -19,6 +19,11 @@ package com.innoq.qmqp.codec;
 import com.innoq.qmqp.protocol.QMQPException;
 import com.innoq.qmqp.protocol.Response;
 import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.util.BufferPool;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -31,13 +36,11 @@ import java.nio.charset.CodingErrorAction;
  */
 public class ResponseCodec {
 
-    private static final CharsetDecoder UTF8 =
-        Charset.forName("UTF-8").newDecoder();
+    // CharsetDecoders are not thread-safe, a new one is created when
+    // needed
+    private static final Charset UTF8 = Charset.forName("UTF-8");
 
-    static {
-        UTF8.onMalformedInput(CodingErrorAction.REPORT)
-            .onUnmappableCharacter(CodingErrorAction.REPORT);
-    }
+    private static final int BUF_LEN = 8192;
 
     private final NetStringCodec netString = new NetStringCodec();
 
@@ -48,17 +51,94 @@ public class ResponseCodec {
      * @throws QMQPException if the netstring is malformed
      */
     public Response fromNetwork(byte[] response) throws QMQPException {
+        return decode(netString.fromNetString(response));
+    }
+
+    /**
+     * Reads a QMQP Response from the given stream without reading
+     * past its end.
+     *
+     * <p>Returns as soon as the response is complete, it doesn't wait
+     * for the server to close the connection.</p>
+     * @param in the stream to read from, must not be null
+     * @param maxSize the maximum size of the response's content
+     * @return the response, will not be null
+     * @throws EOFException if the stream ends before the response is
+     *         complete
+     * @throws QMQPException if the response is malformed or longer
+     *         than maxSize
+     */
+    public Response readFrom(InputStream in, int maxSize)
+        throws IOException, QMQPException {
+        return decode(netString.readNetString(in, maxSize));
+    }
+
+    /**
+     * Reads a QMQP Response from the given stream using a buffer
+     * taken from the given pool.
+     *
+     * <p>Unlike {@link #readFrom(InputStream, int)} this reads the
+     * stream in chunks and may consume bytes following the response,
+     * so it is only suitable for connections that carry nothing
+     * else.</p>
+     * @param in the stream to read from, must not be null
+     * @param maxSize the maximum size of the response's content
+     * @param pool the pool to take the read buffer from, must not be
+     *        null
+     * @return the response, will not be null
+     * @throws EOFException if the stream ends before the response is
+     *         complete
+     * @throws QMQPException if the response is malformed or longer
+     *         than maxSize
+     */
+    public Response readFrom(InputStream in, int maxSize, BufferPool pool)
+        throws IOException, QMQPException {
+        if (in == null || pool == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        final ByteBuffer buf = pool.acquire(BUF_LEN);
         try {
-            byte[] decodedBytes = netString.fromNetString(response);
-            String message =
-                UTF8.decode(ByteBuffer.wrap(decodedBytes)).toString();
-            return new Response(ReturnCode.fromCode(message.charAt(0)),
-                                message.substring(1));
-        } catch (CharacterCodingException uex) {
-            throw new QMQPException("Response wasn't encoded using UTF8", uex);
+            if (!buf.hasArray()) {
+                return readFrom(new BufferedInputStream(in), maxSize);
+            }
+            final NetStringDecoder decoder = new NetStringDecoder(maxSize);
+            final byte[] b = buf.array();
+            final int off = buf.arrayOffset();
+            while (true) {
+                final int len = in.read(b, off, buf.capacity());
+                if (len < 0) {
+                    throw new EOFException("netstring is incomplete");
+                }
+                buf.clear();
+                buf.limit(len);
+                switch (decoder.decode(buf)) {
+                case COMPLETE:
+                    return decode(decoder.getData());
+                case MALFORMED:
+                    throw new QMQPException(decoder.getError());
+                default:
+                    break;
+                }
+            }
+        } finally {
+            pool.release(buf);
         }
     }
 
+    /**
+     * Decodes a QMQP Response from the "interpretation" of its
+     * netstring, e.g. as provided by a {@link NetStringDecoder}.
+     * @param content the netstring's content, must not be null
+     * @return the contained response, will not be null
+     * @throws QMQPException if the content is malformed
+     */
+    public Response fromContent(byte[] content) throws QMQPException {
+        if (content == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        return decode(content);
+    }
+
     /**
      * Encodes a QMQP Response to its network representation.
      * @param response the response to encode
@@ -76,4 +156,45 @@ public class ResponseCodec {
         }
     }
 
+    private Response decode(byte[] decodedBytes) throws QMQPException {
+        if (decodedBytes.length == 0) {
+            throw new QMQPException("Response is empty");
+        }
+        final Response ascii = decodeAscii(decodedBytes);
+        if (ascii != null) {
+            return ascii;
+        }
+        try {
+            CharsetDecoder decoder = UTF8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+            String message =
+                decoder.decode(ByteBuffer.wrap(decodedBytes)).toString();
+            return new Response(ReturnCode.fromCode(message.charAt(0)),
+                                message.substring(1));
+        } catch (CharacterCodingException uex) {
+            throw new QMQPException("Response wasn't encoded using UTF8", uex);
+        }
+    }
+
+    /**
+     * Decodes responses that only consist of ASCII characters - which
+     * is true for almost all of them - without a CharsetDecoder.
+     * @return null if the response contains any non-ASCII bytes
+     */
+    private static Response decodeAscii(byte[] b) {
+        if (b[0] < 0) {
+            return null;
+        }
+        final char[] details = new char[b.length - 1];
+        for (int i = 0; i < details.length; i++) {
+            final byte c = b[i + 1];
+            if (c < 0) {
+                return null;
+            }
+            details[i] = (char) c;
+        }
+        return new Response(ReturnCode.fromCode((char) b[0]),
+                            new String(details));
+    }
 }
@@ -0,0 +1,74 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.protocol;
+
+/**
+ * Validation of envelope addresses shared by the request types.
+ */
+final class Addresses {
+    private Addresses() {}
+
+    /**
+     * Ensures there is a sender and at least one recipient and all of
+     * them only consist of ASCII characters.
+     * @throws IllegalArgumentException otherwise
+     */
+    static void validate(String sender, String[] recipients) {
+        validateSender(sender);
+        if (recipients == null || recipients.length == 0) {
+            throw new IllegalArgumentException("At least one recipient is"
+                                               + " required.");
+        }
+        for (String r : recipients) {
+            if (r == null) {
+                throw new IllegalArgumentException("Recipient must not be"
+                                                   + " null.");
+            }
+            if (!isAscii(r)) {
+                throw new IllegalArgumentException("Recipient '"
+                                                   + r + "' contains non-ASCII"
+                                                   + " characters");
+            }
+        }
+    }
+
+    /**
+     * Ensures there is a sender that only consists of ASCII
+     * characters.
+     * @throws IllegalArgumentException otherwise
+     */
+    static void validateSender(String sender) {
+        if (sender == null) {
+            throw new IllegalArgumentException("Sender must not be null.");
+        }
+        if (!isAscii(sender)) {
+            throw new IllegalArgumentException("Sender '" + sender
+                                               + "' contains non-ASCII"
+                                               + " characters");
+        }
+    }
+
+    private static boolean isAscii(String s) {
+        final int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (s.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.protocol;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A message that is stored in a file.
+ */
+public final class FileMessageSource implements MessageSource {
+
+    private final File file;
+
+    /**
+     * @param file the file holding the raw message, must not be null
+     */
+    public FileMessageSource(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("File must not be null.");
+        }
+        this.file = file;
+    }
+
+    /**
+     * The file holding the message.
+     * <p>Will not be null</p>
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public InputStream openStream() throws IOException {
+        return new FileInputStream(file);
+    }
+}
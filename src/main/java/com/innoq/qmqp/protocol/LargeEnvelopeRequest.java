@@ -0,0 +1,96 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encapsulates a QMQP client request whose recipients are provided
+ * by an Iterable rather than being held as Strings, e.g. when a
+ * mailing list is expanded into hundreds of thousands of addresses.
+ *
+ * <p>The recipients are iterated once to determine the envelope's
+ * length and validate the addresses and once more while the request
+ * is sent, both iterations must yield the same addresses.  The
+ * message is shared rather than copied, see {@link
+ * Request#withSharedMessage(ByteBuffer, String, String[])}.</p>
+ */
+public final class LargeEnvelopeRequest {
+
+    private final ByteBuffer message;
+    private final String sender;
+    private final Iterable<byte[]> recipients;
+
+    /**
+     * Creates a request from a raw message, a required sender and
+     * the recipients.
+     * @param message the raw and unencoded message, its remaining
+     *        bytes are used and must not be modified while the request
+     *        is in use, must not be null.
+     * @param sender the envelope sender, must not be null, should
+     *        contain the bare address only, must not contain non-ASCII
+     *        chars.
+     * @param recipients the envelope recipient addresses as ASCII
+     *        bytes, at least one is required, each should contain the
+     *        bare address only, must not be null.
+     */
+    public LargeEnvelopeRequest(ByteBuffer message, String sender,
+                                Iterable<byte[]> recipients) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message must not be null.");
+        }
+        Addresses.validateSender(sender);
+        if (recipients == null) {
+            throw new IllegalArgumentException("Recipients must not be"
+                                               + " null.");
+        }
+        this.message = message.slice().asReadOnlyBuffer();
+        this.sender = sender;
+        this.recipients = recipients;
+    }
+
+    /**
+     * A read-only view of the raw and unencoded message.
+     * <p>Will not be null</p>
+     */
+    public ByteBuffer getMessageBuffer() {
+        return message.duplicate();
+    }
+
+    /**
+     * The length of the raw and unencoded message.
+     */
+    public int getMessageLength() {
+        return message.remaining();
+    }
+
+    /**
+     * The sender.
+     * <p>Will not be null</p>
+     */
+    public String getSender() {
+        return sender;
+    }
+
+    /**
+     * The recipients as ASCII bytes.
+     * <p>Will not be null</p>
+     */
+    public Iterable<byte[]> getRecipients() {
+        return recipients;
+    }
+}
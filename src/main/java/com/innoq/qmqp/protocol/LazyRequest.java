@@ -0,0 +1,168 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A received QMQP client request that refers to the buffer it has
+ * been decoded from.
+ *
+ * <p>Neither the message nor the envelope are copied when the request
+ * is created, the addresses are only decoded once they are accessed.
+ * The underlying buffer must not be modified while the request is in
+ * use.</p>
+ */
+public final class LazyRequest {
+
+    private final ByteBuffer message;
+    private final ByteBuffer sender;
+    private final ByteBuffer[] recipients;
+    private volatile String senderAddress;
+    private volatile String[] recipientAddresses;
+
+    /**
+     * Creates a request from views of its parts.
+     * @param message the raw and unencoded message, must not be null.
+     * @param sender the envelope sender, must not be null
+     * @param recipients the envelope recipient addresses, at least
+     *        one is required
+     */
+    public LazyRequest(ByteBuffer message, ByteBuffer sender,
+                       ByteBuffer... recipients) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message must not be null.");
+        }
+        if (sender == null) {
+            throw new IllegalArgumentException("Sender must not be null.");
+        }
+        if (recipients == null || recipients.length == 0) {
+            throw new IllegalArgumentException("At least one recipient is"
+                                               + " required.");
+        }
+        this.message = message.asReadOnlyBuffer();
+        this.sender = sender.asReadOnlyBuffer();
+        this.recipients = new ByteBuffer[recipients.length];
+        for (int i = 0; i < recipients.length; i++) {
+            if (recipients[i] == null) {
+                throw new IllegalArgumentException("Recipient must not be"
+                                                   + " null.");
+            }
+            this.recipients[i] = recipients[i].asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * A read-only view of the raw and unencoded message.
+     * <p>Will not be null</p>
+     */
+    public ByteBuffer getMessageBuffer() {
+        return message.duplicate();
+    }
+
+    /**
+     * The length of the raw and unencoded message.
+     */
+    public int getMessageLength() {
+        return message.remaining();
+    }
+
+    /**
+     * A copy of the raw and unencoded message.
+     * <p>Will not be null</p>
+     */
+    public byte[] getMessage() {
+        byte[] m = new byte[message.remaining()];
+        message.duplicate().get(m);
+        return m;
+    }
+
+    /**
+     * A read-only view of the raw sender address.
+     * <p>Will not be null</p>
+     */
+    public ByteBuffer getSenderBuffer() {
+        return sender.duplicate();
+    }
+
+    /**
+     * A read-only view of a raw recipient address.
+     * @param index must be less than {@link #getRecipientCount}
+     */
+    public ByteBuffer getRecipientBuffer(int index) {
+        return recipients[index].duplicate();
+    }
+
+    /**
+     * The sender.
+     * <p>Will not be null</p>
+     */
+    public String getSender() {
+        String s = senderAddress;
+        if (s == null) {
+            senderAddress = s = ascii(sender);
+        }
+        return s;
+    }
+
+    /**
+     * The number of recipients.
+     */
+    public int getRecipientCount() {
+        return recipients.length;
+    }
+
+    /**
+     * The recipients.
+     * <p>Will not be empty</p>
+     */
+    public String[] getRecipients() {
+        String[] r = recipientAddresses;
+        if (r == null) {
+            r = new String[recipients.length];
+            for (int i = 0; i < r.length; i++) {
+                r[i] = ascii(recipients[i]);
+            }
+            recipientAddresses = r;
+        }
+        String[] copy = new String[r.length];
+        System.arraycopy(r, 0, copy, 0, r.length);
+        return copy;
+    }
+
+    /**
+     * Materializes the request, copying the message.
+     */
+    public Request toRequest() {
+        return Request.withSharedMessage(getMessage(), getSender(),
+                                         getRecipients());
+    }
+
+    /**
+     * Decodes an address like the ASCII charset does, replacing
+     * anything outside of it by the Unicode replacement character.
+     */
+    private static String ascii(ByteBuffer b) {
+        final int start = b.position();
+        final char[] c = new char[b.remaining()];
+        for (int i = 0; i < c.length; i++) {
+            final byte v = b.get(start + i);
+            c[i] = v < 0 ? '\ufffd' : (char) v;
+        }
+        return new String(c);
+    }
+}
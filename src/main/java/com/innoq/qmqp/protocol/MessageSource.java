@@ -0,0 +1,36 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Provides the raw message of a StreamingRequest.
+ *
+ * <p>The message is read twice while sending a request, once to
+ * determine its encoded length and once to actually send it, so each
+ * call to {@link #openStream} must provide the same content.</p>
+ */
+public interface MessageSource {
+    /**
+     * Opens a new stream positioned at the start of the message.
+     *
+     * <p>The caller is responsible for closing the stream.</p>
+     */
+    InputStream openStream() throws IOException;
+}
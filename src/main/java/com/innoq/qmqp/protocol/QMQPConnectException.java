@@ -0,0 +1,36 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.protocol;
+
+/**
+ * Exception thrown by client if it fails to connect to the server.
+ *
+ * <p>No part of the request has been sent when this exception is
+ * thrown, so it is always safe to retry the request with a different
+ * server.</p>
+ */
+public class QMQPConnectException extends QMQPException {
+
+    public QMQPConnectException(String message) {
+        super(message);
+    }
+
+    public QMQPConnectException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
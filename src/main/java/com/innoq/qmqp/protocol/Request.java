@@ -16,20 +16,27 @@
 
 package com.innoq.qmqp.protocol;
 
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetEncoder;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Encapsulates a QMQP client request.
+ *
+ * <p>Requests created via the public constructor own a copy of the
+ * message while requests created by {@link #withSharedMessage
+ * withSharedMessage} or {@link #forRecipients forRecipients} share
+ * it, so a single message can be sent to many different envelopes
+ * without being duplicated.  None of the accessors that end with
+ * Buffer or List copy anything.</p>
  */
 public final class Request {
 
-    private static final CharsetEncoder ASCII =
-        Charset.forName("ASCII").newEncoder();
-
-    private final byte[] message;
+    private final ByteBuffer message;
     private final String sender;
     private final String[] recipients;
+    private final List<String> recipientList;
 
     /**
      * Creates a request from a raw message, a required sender and at
@@ -43,33 +50,69 @@ public final class Request {
      *        only, must not contain non-ASCII chars
      */
     public Request(byte[] message, String sender, String... recipients) {
+        this(copy(message), sender, recipients);
+    }
+
+    private Request(ByteBuffer message, String sender,
+                    String[] recipients) {
         if (message == null) {
             throw new IllegalArgumentException("Message must not be null.");
         }
-        if (sender == null) {
-            throw new IllegalArgumentException("Sender must not be null.");
-        }
-        if (!ASCII.canEncode(sender)) {
-            throw new IllegalArgumentException("Sender '" + sender
-                                               + "' contains non-ASCII"
-                                               + " characters");
-        }
-        if (recipients.length == 0) {
-            throw new IllegalArgumentException("At least one recipient is"
-                                               + " required.");
-        }
-        for (String r : recipients) {
-            if (!ASCII.canEncode(r)) {
-                throw new IllegalArgumentException("Recipient '"
-                                                   + r + "' contains non-ASCII"
-                                                   + " characters");
-            }
-        }
-        this.message = new byte[message.length];
-        System.arraycopy(message, 0, this.message, 0, message.length);
+        final String[] r = recipients == null ? null : recipients.clone();
+        Addresses.validate(sender, r);
+        this.message = message;
         this.sender = sender;
-        this.recipients = new String[recipients.length];
-        System.arraycopy(recipients, 0, this.recipients, 0, recipients.length);
+        this.recipients = r;
+        recipientList = Collections.unmodifiableList(Arrays.asList(r));
+    }
+
+    /**
+     * Creates a request that shares the remaining bytes of the given
+     * buffer instead of copying them.
+     *
+     * <p>The content must not be modified while the request is in use,
+     * the same buffer may back any number of requests.  The buffer's
+     * position and limit are not changed.</p>
+     * @param message the raw and unencoded message, must not be null.
+     * @param sender the envelope sender, see the constructor
+     * @param recipients the envelope recipient addresses, see the
+     *        constructor
+     */
+    public static Request withSharedMessage(ByteBuffer message,
+                                            String sender,
+                                            String... recipients) {
+        return new Request(message == null ? null
+                           : message.slice().asReadOnlyBuffer(),
+                           sender, recipients);
+    }
+
+    /**
+     * Creates a request that takes over the given array instead of
+     * copying it.
+     *
+     * <p>The array must not be modified while the request is in use,
+     * the same array may back any number of requests.</p>
+     * @param message the raw and unencoded message, must not be null.
+     * @param sender the envelope sender, see the constructor
+     * @param recipients the envelope recipient addresses, see the
+     *        constructor
+     */
+    public static Request withSharedMessage(byte[] message, String sender,
+                                            String... recipients) {
+        return new Request(message == null ? null
+                           : ByteBuffer.wrap(message).asReadOnlyBuffer(),
+                           sender, recipients);
+    }
+
+    /**
+     * Creates a request with the same message and sender but
+     * different recipients, the message is shared rather than
+     * copied.
+     * @param recipients the envelope recipient addresses, see the
+     *        constructor
+     */
+    public Request forRecipients(String... recipients) {
+        return new Request(message, sender, recipients);
     }
 
     /**
@@ -77,11 +120,26 @@ public final class Request {
      * <p>Will not be null</p>
      */
     public byte[] getMessage(){
-        byte[] m = new byte[message.length];
-        System.arraycopy(message, 0, m, 0, message.length);
+        byte[] m = new byte[message.remaining()];
+        message.duplicate().get(m);
         return m;
     }
 
+    /**
+     * A read-only view of the raw and unencoded message.
+     * <p>Will not be null</p>
+     */
+    public ByteBuffer getMessageBuffer() {
+        return message.duplicate();
+    }
+
+    /**
+     * The length of the raw and unencoded message.
+     */
+    public int getMessageLength() {
+        return message.remaining();
+    }
+
     /**
      * The sender.
      * <p>Will not be null</p>
@@ -99,4 +157,17 @@ public final class Request {
         System.arraycopy(recipients, 0, r, 0, recipients.length);
         return r;
     }
-}
\ No newline at end of file
+
+    /**
+     * An unmodifiable view of the recipients.
+     * <p>Will not be empty</p>
+     */
+    public List<String> getRecipientList() {
+        return recipientList;
+    }
+
+    private static ByteBuffer copy(byte[] message) {
+        return message == null ? null
+            : ByteBuffer.wrap(message.clone()).asReadOnlyBuffer();
+    }
+}
@@ -33,6 +33,8 @@ public enum ReturnCode {
      */
     PERM_FAIL('D');
 
+    private static final ReturnCode[] VALUES = values();
+
     private final char code;
 
     ReturnCode(char c) {
@@ -49,7 +51,7 @@ public enum ReturnCode {
      * @throws IllegalArgumentException if the character code is unknown
      */
     public static ReturnCode fromCode(char c) {
-        for (ReturnCode rc : values()) {
+        for (ReturnCode rc : VALUES) {
             if (rc.getCode() == c) {
                 return rc;
             }
@@ -0,0 +1,215 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the load a server accepts and counts the requests it turns
+ * away.
+ *
+ * <p>A server configured with an AdmissionControl answers requests
+ * that exceed any of the limits with a temporary failure right away,
+ * so clients retry later or with a different server instead of
+ * waiting for an overloaded one.  Three limits are enforced:</p>
+ *
+ * <ul>
+ *   <li>the number of open connections, checked when a connection is
+ *   accepted,</li>
+ *   <li>the total length of the requests that are being received or
+ *   handled, checked as soon as a request's length is known and
+ *   before any memory is allocated for it,</li>
+ *   <li>the number of complete requests waiting for the handler,
+ *   checked before a request is handed to it.  {@link
+ *   VirtualThreadQMQPServer} doesn't queue requests and limits the
+ *   number of requests being handled at the same time instead.</li>
+ * </ul>
+ *
+ * <p>A limit &lt;= 0 means the corresponding resource isn't limited at
+ * all.  Instances are thread-safe and must not be shared between
+ * servers.</p>
+ */
+public class AdmissionControl {
+
+    private final int maxConnections;
+    private final long maxInFlightBytes;
+    private final int maxQueuedRequests;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicInteger queuedRequests = new AtomicInteger();
+
+    private final AtomicLong connectionRejections = new AtomicLong();
+    private final AtomicLong inFlightBytesRejections = new AtomicLong();
+    private final AtomicLong queueRejections = new AtomicLong();
+
+    /**
+     * Creates an AdmissionControl.
+     * @param maxConnections the maximum number of open connections
+     * @param maxInFlightBytes the maximum total length of the requests
+     *        that are being received or handled, should be at least
+     *        the server's maximum request size
+     * @param maxQueuedRequests the maximum number of requests waiting
+     *        for the handler
+     */
+    public AdmissionControl(int maxConnections, long maxInFlightBytes,
+                            int maxQueuedRequests) {
+        this.maxConnections = maxConnections;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    /**
+     * The number of connections currently open.
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * The total length of the requests currently being received or
+     * handled.
+     */
+    public long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    /**
+     * The number of requests currently waiting for the handler.
+     */
+    public int getQueuedRequests() {
+        return queuedRequests.get();
+    }
+
+    /**
+     * The number of connections rejected because too many were open.
+     */
+    public long getConnectionRejections() {
+        return connectionRejections.get();
+    }
+
+    /**
+     * The number of requests rejected because too many bytes were in
+     * flight.
+     */
+    public long getInFlightBytesRejections() {
+        return inFlightBytesRejections.get();
+    }
+
+    /**
+     * The number of requests rejected because too many requests were
+     * waiting for the handler.
+     */
+    public long getQueueRejections() {
+        return queueRejections.get();
+    }
+
+    /**
+     * The total number of connections and requests rejected.
+     */
+    public long getRejections() {
+        return getConnectionRejections() + getInFlightBytesRejections()
+            + getQueueRejections();
+    }
+
+    /**
+     * Admits a new connection.
+     * @return false if the connection must be rejected, {@link
+     *         #closed closed} must be called otherwise
+     */
+    boolean tryOpen() {
+        if (!tryAcquire(connections, maxConnections)) {
+            connectionRejections.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases a connection admitted by tryOpen.
+     */
+    void closed() {
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Admits a request of the given length.
+     * @return false if the request must be rejected, {@link #release
+     *         release} must be called otherwise
+     */
+    boolean tryReserve(long bytes) {
+        if (maxInFlightBytes <= 0) {
+            inFlightBytes.addAndGet(bytes);
+            return true;
+        }
+        if (inFlightBytes.addAndGet(bytes) > maxInFlightBytes) {
+            inFlightBytes.addAndGet(-bytes);
+            inFlightBytesRejections.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases bytes reserved by tryReserve.
+     */
+    void release(long bytes) {
+        inFlightBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Admits a request to the handler's queue.
+     * @return false if the request must be rejected, {@link #dequeued
+     *         dequeued} must be called otherwise
+     */
+    boolean tryEnqueue() {
+        if (!tryAcquire(queuedRequests, maxQueuedRequests)) {
+            queueRejections.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases a request admitted by tryEnqueue.
+     */
+    void dequeued() {
+        queuedRequests.decrementAndGet();
+    }
+
+    /**
+     * Rejects a request admitted by tryEnqueue after all, e.g. because
+     * the handler's executor refused to run it.
+     */
+    void rejectEnqueued() {
+        queuedRequests.decrementAndGet();
+        queueRejections.incrementAndGet();
+    }
+
+    private static boolean tryAcquire(AtomicInteger count, int max) {
+        if (max <= 0) {
+            count.incrementAndGet();
+            return true;
+        }
+        if (count.incrementAndGet() > max) {
+            count.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import java.io.IOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Makes appended data durable for many threads at once.
+ *
+ * <p>Writers append under the spool's lock and then wait until their
+ * data has been forced.  If no sync is running the waiting thread
+ * performs one itself, releasing the lock while the disk is busy, so
+ * all data appended by other threads in the meantime is covered by the
+ * next sync.</p>
+ *
+ * <p>All methods must be called with the lock held.</p>
+ * @param <T> what is forced to disk
+ */
+abstract class GroupCommit<T> {
+
+    private final ReentrantLock lock;
+    private final Condition synced;
+    private long written;
+    private long syncedUpTo;
+    private boolean syncing;
+    private IOException failure;
+    private long syncs;
+
+    /**
+     * @param lock the spool's lock
+     * @param position everything before this position is durable
+     *        already
+     */
+    GroupCommit(ReentrantLock lock, long position) {
+        this.lock = lock;
+        synced = lock.newCondition();
+        written = syncedUpTo = position;
+    }
+
+    /**
+     * The thing to force to disk covering everything written so far.
+     */
+    protected abstract T target();
+
+    /**
+     * Forces the target to disk, called without holding the lock.
+     */
+    protected abstract void force(T target) throws IOException;
+
+    /**
+     * Records that everything up to the given position has been
+     * written.
+     */
+    void written(long position) {
+        written = position;
+    }
+
+    /**
+     * Waits until everything up to the given position is durable.
+     * @return false if writing or forcing has failed
+     */
+    boolean awaitSynced(long position) {
+        while (syncedUpTo < position) {
+            if (failure != null) {
+                return false;
+            }
+            if (syncing) {
+                synced.awaitUninterruptibly();
+            } else {
+                sync();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits until no sync is running.
+     */
+    void awaitIdle() {
+        while (syncing) {
+            synced.awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * Marks the spool as broken, all further waits fail.
+     */
+    void fail(IOException ex) {
+        if (failure == null) {
+            failure = ex;
+        }
+        synced.signalAll();
+    }
+
+    boolean hasFailed() {
+        return failure != null;
+    }
+
+    /**
+     * The number of syncs performed.
+     */
+    long getSyncs() {
+        return syncs;
+    }
+
+    private void sync() {
+        syncing = true;
+        final long position = written;
+        final T target = target();
+        IOException error = null;
+        lock.unlock();
+        try {
+            force(target);
+        } catch (IOException ex) {
+            error = ex;
+        } finally {
+            lock.lock();
+        }
+        syncing = false;
+        if (error != null) {
+            fail(error);
+        } else {
+            syncedUpTo = position;
+            syncs++;
+        }
+        synced.signalAll();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.codec.NetStringDecoder;
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.util.IOUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RequestHandler that appends each request to a journal file and only
+ * accepts it once the journal has been forced to disk.
+ *
+ * <p>Requests are appended in their network representation, so the
+ * journal is a sequence of netstrings.  Forcing the file once per
+ * request would limit the throughput to the number of syncs the disk
+ * manages per second, instead the requests of all concurrent
+ * connections are committed as a group: while one handler thread
+ * forces the file the others append their requests and wait, and the
+ * next sync covers all of them.  The more connections are handled in
+ * parallel - see {@link QMQPServer#setExecutor} - the bigger the
+ * groups.</p>
+ *
+ * <p>Waiting threads block on a lock rather than a monitor so virtual
+ * threads aren't pinned to their carriers.</p>
+ *
+ * <p>If writing or forcing the journal fails, the spool answers all
+ * further requests with a temporary failure, as the state of the file
+ * on disk is unknown.  When the spool is opened, a record at the end
+ * of the journal that has only been written partially is cut
+ * off.</p>
+ */
+public class JournalSpool implements RequestHandler, Closeable {
+
+    private static final int BUF_LEN = 8192;
+
+    private final RequestCodec codec = new RequestCodec();
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final GroupCommit<FileChannel> commit;
+
+    // guarded by lock
+    private boolean closed;
+    private long requests;
+
+    /**
+     * Opens the given journal, creating it if it doesn't exist.
+     * @param journal the file to append to, must not be null
+     * @throws IOException if the journal cannot be opened
+     */
+    public JournalSpool(File journal) throws IOException {
+        if (journal == null) {
+            throw new IllegalArgumentException("journal must not be null");
+        }
+        file = new RandomAccessFile(journal, "rw");
+        try {
+            channel = file.getChannel();
+            final long length = validLength(channel);
+            channel.truncate(length);
+            channel.position(length);
+            commit = new GroupCommit<FileChannel>(lock, length) {
+                protected FileChannel target() {
+                    return channel;
+                }
+                protected void force(FileChannel c) throws IOException {
+                    // the file's length changes with every append, so
+                    // the metadata must be forced as well
+                    c.force(true);
+                }
+            };
+        } catch (IOException ex) {
+            IOUtil.close(file, true);
+            throw ex;
+        }
+    }
+
+    /**
+     * Appends the request to the journal and waits until it has been
+     * forced to disk.
+     */
+    public Response handle(LazyRequest request) {
+        final ByteBuffer[] record = codec.toBuffers(request);
+        lock.lock();
+        try {
+            if (closed || commit.hasFailed()) {
+                return unavailable();
+            }
+            final long end;
+            try {
+                IOUtil.writeFully(channel, record);
+                end = channel.position();
+            } catch (IOException ex) {
+                // the journal may end with part of the record now
+                commit.fail(ex);
+                return unavailable();
+            }
+            commit.written(end);
+            requests++;
+            if (!commit.awaitSynced(end)) {
+                return unavailable();
+            }
+            return new Response(ReturnCode.OK, "spooled");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of requests appended to the journal since the spool
+     * has been opened.
+     */
+    public long getRequestCount() {
+        lock.lock();
+        try {
+            return requests;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of times the journal has been forced to disk since
+     * the spool has been opened.
+     */
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return commit.getSyncs();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the journal, requests that arrive later are answered with
+     * a temporary failure.
+     */
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            commit.awaitIdle();
+            closed = true;
+            file.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Response unavailable() {
+        return new Response(ReturnCode.TEMP_FAIL, "Spool is unavailable");
+    }
+
+    /**
+     * The length of the longest prefix of the journal consisting of
+     * complete netstrings.
+     */
+    private static long validLength(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final NetStringDecoder decoder =
+            new NetStringDecoder((int) Math.min(size, Integer.MAX_VALUE));
+        final ByteBuffer buf = ByteBuffer.allocate(BUF_LEN);
+        long position = 0, valid = 0;
+        channel.position(0);
+        while (channel.read(buf) >= 0) {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                final int before = buf.position();
+                final NetStringDecoder.Result r = decoder.decode(buf);
+                position += buf.position() - before;
+                if (r == NetStringDecoder.Result.COMPLETE) {
+                    valid = position;
+                    decoder.reset();
+                } else if (r == NetStringDecoder.Result.MALFORMED) {
+                    return valid;
+                }
+            }
+            buf.clear();
+        }
+        return valid;
+    }
+}
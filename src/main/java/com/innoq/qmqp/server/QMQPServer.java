@@ -0,0 +1,605 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.codec.NetStringDecoder;
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.codec.ResponseCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.util.IOUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * QMQP server that accepts any number of concurrent connections and
+ * passes the requests received to a {@link RequestHandler}.
+ *
+ * <p>Connections are multiplexed over a fixed number of I/O threads
+ * using non-blocking channels, so slow clients don't tie up any
+ * threads.  Once a request has been received completely the handler
+ * is invoked via an Executor, by default a pool of 32 daemon threads,
+ * so handlers may block.  The response is written by the I/O thread
+ * and the connection is closed afterwards as demanded by the
+ * protocol.</p>
+ *
+ * <p>Malformed requests are answered with a permanent failure and
+ * handlers that throw an exception or return null with a temporary
+ * one.  Connections that don't make any progress for the idle timeout
+ * are closed.</p>
+ *
+ * <p>An {@link AdmissionControl} can be used to answer requests with a
+ * temporary failure while the server is overloaded.</p>
+ */
+public class QMQPServer {
+
+    private final RequestCodec reqCodec = new RequestCodec();
+    private final ResponseCodec respCodec = new ResponseCodec();
+
+    private static final int DEFAULT_PORT = 628;
+    private static final int BUF_LEN = 8192;
+    private static final int BACKLOG = 1024;
+    private static final long SELECT_TIMEOUT = 100;
+    private static final long ACCEPT_BACKOFF = 50;
+    private static final int DEFAULT_MAX_REQUEST_SIZE = 32 * 1024 * 1024;
+    private static final int DEFAULT_IDLE_TIMEOUT = 60000;
+    private static final int DEFAULT_WORKERS = 32;
+    private static final int MAX_DISCARD_READS = 16;
+
+    private final InetSocketAddress bindAddress;
+    private final RequestHandler handler;
+    private final int ioThreads;
+    private volatile int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+    private volatile int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private volatile Executor executor;
+    private volatile AdmissionControl admission =
+        new AdmissionControl(0, 0, 0);
+    private ExecutorService ownExecutor;
+
+    private ServerSocketChannel serverChannel;
+    private EventLoop[] loops;
+    private Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * Sets up a server listening on port 628 of all local addresses
+     * using a single I/O thread.
+     * @param handler processes the requests, must not be null
+     */
+    public QMQPServer(RequestHandler handler) {
+        this(new InetSocketAddress(DEFAULT_PORT), handler, 1);
+    }
+
+    /**
+     * Sets up a server listening on the given port of all local
+     * addresses using a single I/O thread.
+     * @param port the port to listen on, 0 picks a free one
+     * @param handler processes the requests, must not be null
+     */
+    public QMQPServer(int port, RequestHandler handler) {
+        this(new InetSocketAddress(port), handler, 1);
+    }
+
+    /**
+     * Sets up a server.
+     * @param bindAddress the address to listen on, must not be null
+     * @param handler processes the requests, must not be null
+     * @param ioThreads number of I/O threads, must be positive
+     */
+    public QMQPServer(InetSocketAddress bindAddress, RequestHandler handler,
+                      int ioThreads) {
+        if (bindAddress == null || handler == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("At least one I/O thread is"
+                                               + " required.");
+        }
+        this.bindAddress = bindAddress;
+        this.handler = handler;
+        this.ioThreads = ioThreads;
+    }
+
+    /**
+     * Sets the maximum number of bytes a request may contain,
+     * defaults to 32 MB.
+     *
+     * <p>Longer requests are answered with a permanent failure.</p>
+     */
+    public void setMaxRequestSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        maxRequestSize = size;
+    }
+
+    /**
+     * Sets the time in milliseconds after which a connection is closed
+     * if the client doesn't send or receive anything, defaults to one
+     * minute.
+     *
+     * <p>A value &lt;= 0 means no timeout at all.</p>
+     */
+    public void setIdleTimeout(int timeout) {
+        idleTimeout = timeout;
+    }
+
+    /**
+     * Sets the Executor the handler is invoked by, must be called
+     * before the server is started.
+     *
+     * <p>The server doesn't shut down Executors passed in here.</p>
+     * @param executor must not be null
+     */
+    public void setExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the limits for connections and requests, must be called
+     * before the server is started.
+     *
+     * <p>Requests that are rejected because the executor refuses to
+     * run the handler are counted as queue rejections.</p>
+     * @param admission must not be null
+     */
+    public void setAdmissionControl(AdmissionControl admission) {
+        if (admission == null) {
+            throw new IllegalArgumentException("admission control must not"
+                                               + " be null");
+        }
+        this.admission = admission;
+    }
+
+    /**
+     * The limits for connections and requests, by default one that
+     * doesn't limit anything.
+     */
+    public AdmissionControl getAdmissionControl() {
+        return admission;
+    }
+
+    /**
+     * Binds the server socket and starts the server's threads.
+     * @throws QMQPException if the server cannot be started or has
+     *         been started before
+     */
+    public synchronized void start() throws QMQPException {
+        if (serverChannel != null || closed) {
+            throw new QMQPException("Server has already been started");
+        }
+        final EventLoop[] l = new EventLoop[ioThreads];
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(bindAddress, BACKLOG);
+            for (int i = 0; i < ioThreads; i++) {
+                l[i] = new EventLoop(i);
+            }
+        } catch (IOException ex) {
+            for (EventLoop loop : l) {
+                if (loop != null) {
+                    loop.closeSelector();
+                }
+            }
+            IOUtil.close(serverChannel, true);
+            throw new QMQPException("Failed to start server on "
+                                    + bindAddress, ex);
+        }
+        if (executor == null) {
+            ownExecutor =
+                Executors.newFixedThreadPool(DEFAULT_WORKERS,
+                                             new DaemonThreadFactory());
+            executor = ownExecutor;
+        }
+        loops = l;
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+        acceptor = new Thread(new Acceptor(), "qmqp-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * The port the server is listening on.
+     * @return -1 unless the server has been started
+     */
+    public synchronized int getPort() {
+        return serverChannel == null ? -1
+            : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes all open ones, requests
+     * that are being handled are not answered.
+     */
+    public synchronized void close() {
+        closed = true;
+        IOUtil.close(serverChannel, true);
+        if (loops != null) {
+            for (EventLoop l : loops) {
+                l.shutdown();
+            }
+        }
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    private static long deadline(int timeout) {
+        return timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+    }
+
+    private final class Acceptor implements Runnable {
+        private int nextLoop;
+
+        public void run() {
+            while (!closed) {
+                final SocketChannel c;
+                try {
+                    c = serverChannel.accept();
+                } catch (ClosedChannelException ex) {
+                    break;
+                } catch (IOException ex) {
+                    // most likely out of file descriptors, give the
+                    // I/O threads a chance to close some
+                    pause();
+                    continue;
+                }
+                final EventLoop loop = loops[nextLoop++ % loops.length];
+                loop.register(new Connection(loop, c, admission.tryOpen()));
+                nextLoop &= Integer.MAX_VALUE;
+            }
+        }
+
+        private void pause() {
+            try {
+                Thread.sleep(ACCEPT_BACKOFF);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Connection> newConnections =
+            new ConcurrentLinkedQueue<Connection>();
+        private final Queue<Connection> responses =
+            new ConcurrentLinkedQueue<Connection>();
+        // only accessed by the I/O thread
+        private final Set<Connection> active = new HashSet<Connection>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(BUF_LEN);
+        private volatile boolean running = true;
+
+        EventLoop(int index) throws IOException {
+            selector = Selector.open();
+            thread = new Thread(this, "qmqp-server-io-" + index);
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void register(Connection c) {
+            newConnections.add(c);
+            if (!running) {
+                // shutdown may have drained the queue already
+                closeQueued();
+                return;
+            }
+            selector.wakeup();
+        }
+
+        void respond(Connection c) {
+            responses.add(c);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(SELECT_TIMEOUT);
+                    registerNewConnections();
+                    startResponses();
+                    Iterator<SelectionKey> keys =
+                        selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        ((Connection) key.attachment()).handle(key);
+                    }
+                    expireConnections();
+                }
+            } catch (IOException ex) {
+                // selector is broken, close everything below
+            } catch (ClosedSelectorException ex) {
+                // same as above
+            } finally {
+                running = false;
+                for (Connection c : new HashSet<Connection>(active)) {
+                    c.close();
+                }
+                closeQueued();
+                closeSelector();
+            }
+        }
+
+        void closeSelector() {
+            try {
+                selector.close();
+            } catch (IOException ex) {
+                // nothing left to clean up
+            }
+        }
+
+        private void registerNewConnections() {
+            Connection conn;
+            while ((conn = newConnections.poll()) != null) {
+                try {
+                    conn.channel.configureBlocking(false);
+                    conn.key = conn.channel.register(selector,
+                                                     SelectionKey.OP_READ,
+                                                     conn);
+                    active.add(conn);
+                } catch (IOException ex) {
+                    conn.closeChannel();
+                    continue;
+                }
+                if (!conn.admitted) {
+                    conn.reject();
+                }
+            }
+        }
+
+        private void startResponses() {
+            Connection c;
+            while ((c = responses.poll()) != null) {
+                c.startWriting();
+            }
+        }
+
+        private void expireConnections() {
+            long now = System.currentTimeMillis();
+            for (Connection c : new HashSet<Connection>(active)) {
+                if (c.deadline > 0 && now >= c.deadline) {
+                    c.close();
+                }
+            }
+        }
+
+        private void closeQueued() {
+            Connection c;
+            while ((c = newConnections.poll()) != null) {
+                c.closeChannel();
+            }
+        }
+    }
+
+    private final class Connection implements Runnable {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        // whether the connection counts against the admission control
+        private final boolean admitted;
+        private final NetStringDecoder in =
+            new NetStringDecoder(maxRequestSize);
+        private SelectionKey key;
+        private long deadline = deadline(idleTimeout);
+        // bytes reserved with the admission control
+        private int reserved;
+        private boolean closed;
+        // set by the worker thread, handed over via the loop's queue
+        private ByteBuffer out;
+
+        Connection(EventLoop loop, SocketChannel channel, boolean admitted) {
+            this.loop = loop;
+            this.channel = channel;
+            this.admitted = admitted;
+        }
+
+        void handle(SelectionKey k) {
+            try {
+                if (k.isReadable()) {
+                    read();
+                }
+                if (k.isValid() && k.isWritable()) {
+                    write();
+                }
+            } catch (IOException ex) {
+                close();
+            }
+        }
+
+        /**
+         * Invokes the handler, runs on a thread of the Executor.
+         */
+        public void run() {
+            admission.dequeued();
+            final LazyRequest request;
+            try {
+                request = reqCodec.lazyFromContent(in.getData());
+            } catch (QMQPException ex) {
+                respond(Responses.malformed(null));
+                return;
+            }
+            respond(Responses.handle(handler, request));
+        }
+
+        void startWriting() {
+            if (!key.isValid()) {
+                // closed by shutdown or timeout in the meantime
+                return;
+            }
+            deadline = deadline(idleTimeout);
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Answers with the pre-encoded temporary failure right away,
+         * runs on the I/O thread.
+         */
+        void reject() {
+            out = Responses.busy();
+            deadline = deadline(idleTimeout);
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        void close() {
+            loop.active.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            closeChannel();
+        }
+
+        /**
+         * Closes the channel and releases everything reserved with the
+         * admission control, may be called by any thread.
+         */
+        synchronized void closeChannel() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (admitted) {
+                admission.closed();
+            }
+            admission.release(reserved);
+            IOUtil.close(channel, true);
+        }
+
+        private void read() throws IOException {
+            final ByteBuffer buf = loop.readBuffer;
+            buf.clear();
+            if (channel.read(buf) < 0) {
+                close();
+                return;
+            }
+            deadline = deadline(idleTimeout);
+            buf.flip();
+            if (in.getLength() < 0) {
+                in.decodeLength(buf);
+                if (in.getLength() >= 0) {
+                    if (!admission.tryReserve(in.getLength())) {
+                        reject();
+                        return;
+                    }
+                    reserved = in.getLength();
+                }
+            }
+            switch (in.decode(buf)) {
+            case COMPLETE:
+                // nothing to do for the I/O thread until the handler
+                // is done
+                key.interestOps(0);
+                deadline = 0;
+                if (!admission.tryEnqueue()) {
+                    reject();
+                    break;
+                }
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException ex) {
+                    admission.rejectEnqueued();
+                    reject();
+                }
+                break;
+            case MALFORMED:
+                key.interestOps(0);
+                respond(Responses.malformed(in.getError()));
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void write() throws IOException {
+            channel.write(out);
+            if (out.hasRemaining()) {
+                deadline = deadline(idleTimeout);
+                return;
+            }
+            // the request may not have been read completely if it has
+            // been rejected or is malformed
+            channel.socket().shutdownOutput();
+            discardInput();
+            close();
+        }
+
+        /**
+         * Reads what has arrived beyond the request, closing the
+         * channel with unread input would reset the connection and
+         * could destroy the response before the client has read it.
+         */
+        private void discardInput() throws IOException {
+            final ByteBuffer buf = loop.readBuffer;
+            for (int i = 0; i < MAX_DISCARD_READS; i++) {
+                buf.clear();
+                if (channel.read(buf) <= 0) {
+                    return;
+                }
+            }
+        }
+
+        private void respond(Response response) {
+            out = ByteBuffer.wrap(respCodec.toNetwork(response));
+            loop.respond(this);
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "qmqp-server-worker-"
+                                  + count.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
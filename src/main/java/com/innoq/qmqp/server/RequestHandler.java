@@ -0,0 +1,39 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.Response;
+
+/**
+ * Processes the requests received by a {@link QMQPServer}, e.g. by
+ * queueing the message.
+ *
+ * <p>Implementations are invoked concurrently for different
+ * connections and must be thread-safe.</p>
+ */
+public interface RequestHandler {
+    /**
+     * Processes a request that has been received completely.
+     * @param request the request, it refers to a buffer that belongs
+     *        to this request alone and may be kept
+     * @return the response sent to the client, must not be null
+     * @throws RuntimeException makes the server respond with a
+     *         temporary failure
+     */
+    Response handle(LazyRequest request);
+}
@@ -0,0 +1,72 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.codec.ResponseCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import java.nio.ByteBuffer;
+
+/**
+ * Responses shared by the server implementations.
+ */
+final class Responses {
+    private Responses() {}
+
+    private static final ByteBuffer BUSY =
+        ByteBuffer.wrap(new ResponseCodec()
+                        .toNetwork(new Response(ReturnCode.TEMP_FAIL,
+                                                "Server is busy")))
+        .asReadOnlyBuffer();
+
+    /**
+     * The encoded response to requests rejected by an
+     * AdmissionControl.
+     * @return a new view of a shared buffer
+     */
+    static ByteBuffer busy() {
+        return BUSY.duplicate();
+    }
+
+    /**
+     * Invokes the handler, turning exceptions and missing responses
+     * into temporary failures.
+     */
+    static Response handle(RequestHandler handler, LazyRequest request) {
+        try {
+            final Response response = handler.handle(request);
+            if (response != null) {
+                return response;
+            }
+            return new Response(ReturnCode.TEMP_FAIL,
+                                "Request wasn't handled");
+        } catch (RuntimeException ex) {
+            return new Response(ReturnCode.TEMP_FAIL, "Internal error");
+        }
+    }
+
+    /**
+     * The response to a request that cannot be decoded.
+     * @param reason describes what is wrong, may be null
+     */
+    static Response malformed(String reason) {
+        return new Response(ReturnCode.PERM_FAIL, reason == null
+                            ? "Request is malformed"
+                            : "Request is malformed: " + reason);
+    }
+}
@@ -0,0 +1,771 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.codec.NetStringDecoder;
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.util.IOUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * RequestHandler that stores requests in fixed-size memory-mapped
+ * segment files and keeps track of what has become of them.
+ *
+ * <p>Each request is appended to the current segment in its network
+ * representation and accepted once the segment has been forced to
+ * disk, requests of concurrent connections are committed as a group
+ * like {@link JournalSpool} does.  A request becomes visible to {@link
+ * #read read}, {@link #nextPending nextPending} and the index only
+ * once it is durable.  Requests are identified by
+ * consecutive numbers starting at 0, the number is part of the
+ * response's details.  Every request starts out {@link Status#PENDING
+ * PENDING}, whatever forwards them updates the status via {@link
+ * #setStatus setStatus}.</p>
+ *
+ * <p>The offsets and statuses of all requests are held in memory and
+ * written to an index file by {@link #checkpoint checkpoint}, which
+ * happens whenever a segment is full, when the spool is closed and
+ * whenever the application asks for it.  When the spool is opened it
+ * reads the index and only scans the part of the segments written
+ * after the last checkpoint, so recovery doesn't depend on the number
+ * of requests spooled.  Without a usable index all segments are
+ * scanned and all requests are considered pending.  Statuses changed
+ * after the last checkpoint are lost in a crash, so a request may be
+ * forwarded twice but never gets lost.</p>
+ *
+ * <p>The directory entries of new files are not forced to disk, the
+ * directory should live on a file system that orders metadata updates
+ * sensibly.</p>
+ */
+public class SegmentedSpool implements RequestHandler, Closeable {
+
+    /**
+     * What has become of a spooled request.
+     */
+    public static enum Status {
+        /** The request still has to be forwarded. */
+        PENDING,
+        /** The request has been forwarded. */
+        FORWARDED,
+        /** Forwarding the request has failed permanently. */
+        FAILED
+    }
+
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String INDEX = "index";
+    private static final String INDEX_TMP = "index.tmp";
+    private static final int MAGIC = 0x514d5350;
+    private static final int VERSION = 1;
+    private static final int INDEX_HEADER_LEN = 28;
+    private static final int INITIAL_ENTRIES = 1024;
+    private static final Status[] STATUSES = Status.values();
+
+    private final RequestCodec codec = new RequestCodec();
+    private final File directory;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final GroupCommit<MappedByteBuffer> commit;
+
+    // guarded by lock
+    private final List<Segment> segments = new ArrayList<Segment>();
+    private boolean closed;
+    private long scannedBytes;
+
+    /**
+     * Opens the spool in the given directory using segments of 64 MB,
+     * creating it if necessary.
+     * @param directory holds the segments and the index, must not be
+     *        null
+     * @throws IOException if the spool cannot be opened
+     */
+    public SegmentedSpool(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the spool in the given directory, creating it if
+     * necessary.
+     * @param directory holds the segments and the index, must not be
+     *        null
+     * @param segmentSize the size of each segment file, must be at
+     *        least 1024 and must not change once the spool has been
+     *        created, limits the size of the requests that can be
+     *        spooled
+     * @throws IOException if the spool cannot be opened
+     */
+    public SegmentedSpool(File directory, int segmentSize)
+        throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("directory must not be null");
+        }
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("segmentSize must be at least "
+                                               + MIN_SEGMENT_SIZE);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+        recover();
+        final Segment last = current();
+        commit = new GroupCommit<MappedByteBuffer>(lock,
+                                                   position(last, last.end)) {
+            protected MappedByteBuffer target() {
+                return current().buffer;
+            }
+            protected void force(MappedByteBuffer b) throws IOException {
+                SegmentedSpool.this.force(b);
+            }
+        };
+    }
+
+    /**
+     * Appends the request to the current segment and waits until it
+     * has been forced to disk.
+     */
+    public Response handle(LazyRequest request) {
+        final ByteBuffer[] record = codec.toBuffers(request);
+        long length = 0;
+        for (ByteBuffer b : record) {
+            length += b.remaining();
+        }
+        if (length > segmentSize) {
+            return new Response(ReturnCode.PERM_FAIL, "Message is too big"
+                                + " for the spool");
+        }
+        boolean rolled = false;
+        final long id;
+        lock.lock();
+        try {
+            if (closed || commit.hasFailed()) {
+                return unavailable();
+            }
+            Segment seg = current();
+            if (seg.end + length > segmentSize) {
+                try {
+                    seg = roll();
+                    rolled = true;
+                } catch (IOException ex) {
+                    commit.fail(ex);
+                    return unavailable();
+                }
+            }
+            final ByteBuffer dest = seg.buffer.duplicate();
+            dest.position(seg.end);
+            for (ByteBuffer b : record) {
+                dest.put(b);
+            }
+            final int index = seg.count;
+            id = seg.firstId + index;
+            seg.add(seg.end);
+            seg.end = dest.position();
+            final long end = position(seg, seg.end);
+            commit.written(end);
+            if (!commit.awaitSynced(end)) {
+                // never published, the client will send it again
+                return unavailable();
+            }
+            // everything written before has been synced as well
+            seg.publish(index + 1);
+        } finally {
+            lock.unlock();
+        }
+        if (rolled) {
+            try {
+                checkpoint();
+            } catch (IOException ex) {
+                // the next recovery has to scan a bit more
+            }
+        }
+        return new Response(ReturnCode.OK, "spooled " + id);
+    }
+
+    /**
+     * The number of durable requests in the spool, they are numbered
+     * from 0 up to this number minus one.
+     */
+    public long getEntryCount() {
+        lock.lock();
+        try {
+            final Segment last = current();
+            return last.firstId + last.published;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads a spooled request, copying it out of its segment.
+     * @param id the request's number
+     * @return the request, will not be null
+     */
+    public LazyRequest read(long id) {
+        final byte[] record;
+        lock.lock();
+        try {
+            final Segment seg = segment(id);
+            final int index = (int) (id - seg.firstId);
+            final int start = seg.offsets[index];
+            final int end = index + 1 < seg.count ? seg.offsets[index + 1]
+                : seg.end;
+            record = new byte[end - start];
+            final ByteBuffer src = seg.buffer.duplicate();
+            src.position(start);
+            src.get(record);
+        } finally {
+            lock.unlock();
+        }
+        return codec.lazyFromNetwork(record);
+    }
+
+    /**
+     * The status of a spooled request.
+     * @param id the request's number
+     */
+    public Status getStatus(long id) {
+        lock.lock();
+        try {
+            final Segment seg = segment(id);
+            return STATUSES[seg.statuses[(int) (id - seg.firstId)]];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates the status of a spooled request, the change becomes
+     * durable with the next checkpoint.
+     * @param id the request's number
+     * @param status must not be null
+     */
+    public void setStatus(long id, Status status) {
+        if (status == null) {
+            throw new IllegalArgumentException("status must not be null");
+        }
+        lock.lock();
+        try {
+            final Segment seg = segment(id);
+            seg.statuses[(int) (id - seg.firstId)] = (byte) status.ordinal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds the first pending request.
+     * @param from the number of the first request to look at
+     * @return the request's number or -1 if there is none
+     */
+    public long nextPending(long from) {
+        lock.lock();
+        try {
+            for (Segment seg : segments) {
+                final long skip = Math.max(from - seg.firstId, 0);
+                for (int i = (int) Math.min(skip, seg.published);
+                     i < seg.published; i++) {
+                    if (seg.statuses[i] == Status.PENDING.ordinal()) {
+                        return seg.firstId + i;
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the offsets and statuses of all requests to the index.
+     *
+     * <p>Should be called every now and then, e.g. every few seconds,
+     * to limit the number of status changes lost in a crash.  Only
+     * the statuses are copied while holding the spool's lock, one
+     * segment at a time, so requests arriving meanwhile aren't held
+     * up.</p>
+     */
+    public void checkpoint() throws IOException {
+        checkpointLock.lock();
+        try {
+            final List<Snapshot> snapshots = new ArrayList<Snapshot>();
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IOException("Spool is closed");
+                }
+                for (Segment seg : segments) {
+                    snapshots.add(new Snapshot(seg));
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (Snapshot s : snapshots) {
+                final byte[] statuses = new byte[s.count];
+                lock.lock();
+                try {
+                    System.arraycopy(s.segment.statuses, 0, statuses, 0,
+                                     s.count);
+                } finally {
+                    lock.unlock();
+                }
+                s.statuses = statuses;
+            }
+            // only published requests are part of the index, they are
+            // on disk already
+            writeIndex(encodeIndex(snapshots));
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a last checkpoint, requests that arrive later are
+     * answered with a temporary failure.
+     *
+     * <p>The segments stay mapped until they are garbage
+     * collected.</p>
+     */
+    public void close() throws IOException {
+        checkpoint();
+        lock.lock();
+        try {
+            commit.awaitIdle();
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces a segment to disk, called by the group commit without
+     * holding the lock.
+     */
+    void force(MappedByteBuffer segment) throws IOException {
+        segment.force();
+    }
+
+    /**
+     * The number of bytes scanned when the spool was opened.
+     */
+    long getScannedBytes() {
+        lock.lock();
+        try {
+            return scannedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Segment current() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private Segment segment(long id) {
+        int low = 0, high = segments.size() - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (segments.get(mid).firstId <= id) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        final Segment seg = segments.get(low);
+        if (id < seg.firstId || id >= seg.firstId + seg.published) {
+            throw new IllegalArgumentException("No request " + id);
+        }
+        return seg;
+    }
+
+    private long position(Segment seg, int offset) {
+        return (long) seg.number * segmentSize + offset;
+    }
+
+    /**
+     * Forces the full segment to disk and starts a new one.
+     */
+    private Segment roll() throws IOException {
+        final Segment full = current();
+        full.buffer.force();
+        // including requests whose writers are still waiting
+        full.publish(full.count);
+        final Segment next = openSegment(full.number + 1,
+                                         full.firstId + full.count);
+        segments.add(next);
+        return next;
+    }
+
+    private void recover() throws IOException {
+        final int[] numbers = segmentNumbers();
+        if (!recoverFromIndex(numbers)) {
+            segments.clear();
+            scannedBytes = 0;
+            long id = 0;
+            for (int number : numbers) {
+                final Segment seg = openSegment(number, id);
+                scan(seg, 0);
+                segments.add(seg);
+                id += seg.count;
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(0, 0));
+        }
+        clearTail(current());
+        // requests found by scanning may only have reached the page
+        // cache before the crash, the index must not refer to them
+        // before they are on disk
+        current().buffer.force();
+    }
+
+    /**
+     * Restores the segments covered by the index and scans the rest.
+     * @return false if the index is missing or doesn't match the
+     *         segments
+     */
+    private boolean recoverFromIndex(int[] numbers) throws IOException {
+        final File f = new File(directory, INDEX);
+        if (!f.isFile() || numbers.length == 0) {
+            return false;
+        }
+        final ByteBuffer index;
+        final RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            if (raf.length() < INDEX_HEADER_LEN + 8
+                || raf.length() > Integer.MAX_VALUE) {
+                return false;
+            }
+            final byte[] content = new byte[(int) raf.length()];
+            raf.readFully(content);
+            final CRC32 crc = new CRC32();
+            crc.update(content, 0, content.length - 8);
+            index = ByteBuffer.wrap(content);
+            if (index.getLong(content.length - 8) != crc.getValue()) {
+                return false;
+            }
+            index.limit(content.length - 8);
+        } finally {
+            IOUtil.close(raf, true);
+        }
+        try {
+            if (index.getInt() != MAGIC || index.getInt() != VERSION
+                || index.getInt() != segmentSize) {
+                return false;
+            }
+            final int firstNumber = index.getInt();
+            long id = index.getLong();
+            final int count = index.getInt();
+            if (count < 1 || count > numbers.length) {
+                return false;
+            }
+            for (int i = 0; i < numbers.length; i++) {
+                if (numbers[i] != firstNumber + i) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                final Segment seg = openSegment(firstNumber + i, id);
+                seg.restore(index);
+                segments.add(seg);
+                id += seg.count;
+            }
+            // picks up where the checkpoint left off
+            scan(current(), current().end);
+            for (int i = count; i < numbers.length; i++) {
+                final Segment seg = openSegment(firstNumber + i, id);
+                scan(seg, 0);
+                segments.add(seg);
+                id += seg.count;
+            }
+            return true;
+        } catch (BufferUnderflowException ex) {
+            return false;
+        } catch (IllegalStateException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the requests of the given segment starting at the given
+     * offset up to the first byte that isn't part of a complete
+     * netstring.
+     */
+    private void scan(Segment seg, int from) {
+        final ByteBuffer b = seg.buffer.duplicate();
+        b.position(from);
+        final NetStringDecoder decoder = new NetStringDecoder(segmentSize);
+        int offset = from;
+        // a netstring never starts with a zero byte, so that is where
+        // the segment's unused space starts
+        while (b.hasRemaining() && b.get(b.position()) != 0) {
+            decoder.reset();
+            if (decoder.decode(b) != NetStringDecoder.Result.COMPLETE) {
+                // written partially before a crash
+                break;
+            }
+            seg.add(offset);
+            offset = b.position();
+        }
+        seg.end = offset;
+        seg.publish(seg.count);
+        scannedBytes += b.position() - from;
+    }
+
+    /**
+     * Zeroes anything following the last complete request, so
+     * remainders of a partially written request cannot be mistaken for
+     * requests after the next crash.
+     */
+    private void clearTail(Segment seg) {
+        final MappedByteBuffer b = seg.buffer;
+        int i = seg.end;
+        for (; i < segmentSize && (i & 7) != 0; i++) {
+            b.put(i, (byte) 0);
+        }
+        for (; i + 8 <= segmentSize; i += 8) {
+            if (b.getLong(i) != 0) {
+                b.putLong(i, 0);
+            }
+        }
+        for (; i < segmentSize; i++) {
+            b.put(i, (byte) 0);
+        }
+    }
+
+    private int[] segmentNumbers() throws IOException {
+        final String[] names = directory.list();
+        if (names == null) {
+            throw new IOException("Failed to list " + directory);
+        }
+        final List<Integer> numbers = new ArrayList<Integer>();
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX)) {
+                try {
+                    numbers.add(Integer.valueOf(name
+                                                .substring(SEGMENT_PREFIX
+                                                           .length())));
+                } catch (NumberFormatException ex) {
+                    // not one of ours
+                }
+            }
+        }
+        final int[] result = new int[numbers.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = numbers.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private Segment openSegment(int number, long firstId)
+        throws IOException {
+        final File f = new File(directory, SEGMENT_PREFIX
+                                + String.format("%08d", number));
+        final RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            if (raf.length() == 0) {
+                raf.setLength(segmentSize);
+            } else if (raf.length() != segmentSize) {
+                throw new IOException(f + " isn't " + segmentSize
+                                      + " bytes long");
+            }
+            // the mapping stays valid once the file has been closed
+            return new Segment(number, firstId,
+                               raf.getChannel()
+                               .map(FileChannel.MapMode.READ_WRITE, 0,
+                                    segmentSize));
+        } finally {
+            IOUtil.close(raf, true);
+        }
+    }
+
+    /**
+     * Serializes the offsets and statuses of all published requests,
+     * followed by a checksum.
+     */
+    private byte[] encodeIndex(List<Snapshot> snapshots) {
+        long length = INDEX_HEADER_LEN + 8;
+        for (Snapshot s : snapshots) {
+            length += 8 + 5L * s.count;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many requests for the"
+                                            + " index");
+        }
+        final byte[] content = new byte[(int) length];
+        final ByteBuffer index = ByteBuffer.wrap(content);
+        index.putInt(MAGIC).putInt(VERSION).putInt(segmentSize);
+        index.putInt(snapshots.get(0).segment.number);
+        index.putLong(snapshots.get(0).segment.firstId);
+        index.putInt(snapshots.size());
+        for (Snapshot s : snapshots) {
+            s.store(index);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(content, 0, index.position());
+        index.putLong(crc.getValue());
+        return content;
+    }
+
+    /**
+     * Replaces the index by writing a new file and renaming it, so a
+     * crash leaves either the old or the new index.
+     */
+    private void writeIndex(byte[] index) throws IOException {
+        final File tmp = new File(directory, INDEX_TMP);
+        final FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write(index);
+            out.getFD().sync();
+        } finally {
+            IOUtil.close(out, true);
+        }
+        final File f = new File(directory, INDEX);
+        if (!tmp.renameTo(f) && !(f.delete() && tmp.renameTo(f))) {
+            throw new IOException("Failed to replace " + f);
+        }
+    }
+
+    private static Response unavailable() {
+        return new Response(ReturnCode.TEMP_FAIL, "Spool is unavailable");
+    }
+
+    private static final class Segment {
+        private final int number;
+        private final long firstId;
+        private final MappedByteBuffer buffer;
+        // the offset following the last request
+        private int end;
+        private int count;
+        // the number of requests that are durable, readers and the
+        // index don't look any further
+        private int published;
+        private int[] offsets = new int[INITIAL_ENTRIES];
+        private byte[] statuses = new byte[INITIAL_ENTRIES];
+
+        private Segment(int number, long firstId, MappedByteBuffer buffer) {
+            this.number = number;
+            this.firstId = firstId;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Adds a pending request starting at the given offset.
+         */
+        private void add(int offset) {
+            if (count == offsets.length) {
+                final int[] o = new int[count * 2];
+                System.arraycopy(offsets, 0, o, 0, count);
+                offsets = o;
+                final byte[] s = new byte[count * 2];
+                System.arraycopy(statuses, 0, s, 0, count);
+                statuses = s;
+            }
+            offsets[count] = offset;
+            statuses[count] = (byte) Status.PENDING.ordinal();
+            count++;
+        }
+
+        /**
+         * Makes the first n requests visible.
+         */
+        private void publish(int n) {
+            if (n > published) {
+                published = n;
+            }
+        }
+
+        /**
+         * Reads what store has written.
+         * @throws IllegalStateException if the index is inconsistent
+         */
+        private void restore(ByteBuffer index) {
+            final int n = index.getInt();
+            end = index.getInt();
+            if (n < 0 || end < 0 || end > buffer.capacity()) {
+                throw new IllegalStateException("Corrupt index");
+            }
+            offsets = new int[Math.max(n, INITIAL_ENTRIES)];
+            statuses = new byte[offsets.length];
+            for (int i = 0; i < n; i++) {
+                offsets[i] = index.getInt();
+            }
+            index.get(statuses, 0, n);
+            for (int i = 0; i < n; i++) {
+                if (statuses[i] < 0 || statuses[i] >= STATUSES.length) {
+                    throw new IllegalStateException("Corrupt index");
+                }
+            }
+            count = published = n;
+        }
+    }
+
+    /**
+     * The published part of a segment as seen by a checkpoint.
+     */
+    private static final class Snapshot {
+        private final Segment segment;
+        private final int count;
+        private final int end;
+        // offsets of published requests never change, an array
+        // replaced by a larger one keeps them
+        private final int[] offsets;
+        private byte[] statuses;
+
+        /**
+         * Must be called with the lock held.
+         */
+        private Snapshot(Segment segment) {
+            this.segment = segment;
+            count = segment.published;
+            end = count < segment.count ? segment.offsets[count]
+                : segment.end;
+            offsets = segment.offsets;
+        }
+
+        /**
+         * Writes what Segment.restore reads.
+         */
+        private void store(ByteBuffer index) {
+            index.putInt(count).putInt(end);
+            for (int i = 0; i < count; i++) {
+                index.putInt(offsets[i]);
+            }
+            index.put(statuses, 0, count);
+        }
+    }
+}
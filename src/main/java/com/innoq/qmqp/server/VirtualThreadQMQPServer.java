@@ -0,0 +1,339 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.codec.ResponseCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.util.IOUtil;
+import com.innoq.qmqp.util.VirtualThreads;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * QMQP server that handles each connection on a thread of its own
+ * using plain blocking sockets.
+ *
+ * <p>By default every connection gets a new virtual thread, which
+ * requires a Java runtime that supports virtual threads (Java 21 or
+ * later).  Reading the request, invoking the {@link RequestHandler}
+ * and writing the response happen on that thread, so handlers can
+ * simply block and tens of thousands of slow clients don't need a
+ * platform thread each.  Handlers should avoid blocking inside of
+ * synchronized blocks which would pin the virtual thread to its
+ * carrier.</p>
+ *
+ * <p>Requests are answered like {@link QMQPServer} answers them, the
+ * idle timeout applies to each read.  Writes aren't bounded, the
+ * responses are small enough to fit into the socket's send buffer
+ * even if the client doesn't read them.  An {@link
+ * AdmissionControl} can be used to answer requests with a temporary
+ * failure while the server is overloaded.</p>
+ */
+public class VirtualThreadQMQPServer {
+
+    private final RequestCodec reqCodec = new RequestCodec();
+    private final ResponseCodec respCodec = new ResponseCodec();
+
+    private static final int DEFAULT_PORT = 628;
+    private static final int BUF_LEN = 512;
+    private static final int BACKLOG = 1024;
+    private static final long ACCEPT_BACKOFF = 50;
+    private static final int DEFAULT_MAX_REQUEST_SIZE = 32 * 1024 * 1024;
+    private static final int DEFAULT_IDLE_TIMEOUT = 60000;
+
+    private final InetSocketAddress bindAddress;
+    private final RequestHandler handler;
+    private final ExecutorService executor;
+    private final ConcurrentMap<Socket, Boolean> open =
+        new ConcurrentHashMap<Socket, Boolean>();
+    private volatile int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+    private volatile int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private volatile AdmissionControl admission =
+        new AdmissionControl(0, 0, 0);
+
+    private ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    /**
+     * Sets up a server listening on port 628 of all local addresses.
+     * @param handler processes the requests, must not be null
+     * @throws UnsupportedOperationException if the Java runtime
+     *         doesn't support virtual threads
+     */
+    public VirtualThreadQMQPServer(RequestHandler handler) {
+        this(DEFAULT_PORT, handler);
+    }
+
+    /**
+     * Sets up a server listening on the given port of all local
+     * addresses.
+     * @param port the port to listen on, 0 picks a free one
+     * @param handler processes the requests, must not be null
+     * @throws UnsupportedOperationException if the Java runtime
+     *         doesn't support virtual threads
+     */
+    public VirtualThreadQMQPServer(int port, RequestHandler handler) {
+        this(new InetSocketAddress(port), handler,
+             VirtualThreads.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Sets up a server running connections on threads of the given
+     * executor.
+     *
+     * <p>The executor must provide a thread for each task, tasks
+     * queued behind other connections would only be served once those
+     * have been closed.  It is shut down when the server is
+     * closed.</p>
+     * @param bindAddress the address to listen on, must not be null
+     * @param handler processes the requests, must not be null
+     * @param executor runs one task per connection, must not be null
+     */
+    public VirtualThreadQMQPServer(InetSocketAddress bindAddress,
+                                   RequestHandler handler,
+                                   ExecutorService executor) {
+        if (bindAddress == null || handler == null || executor == null) {
+            throw new IllegalArgumentException("input must not be null");
+        }
+        this.bindAddress = bindAddress;
+        this.handler = handler;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the maximum number of bytes a request may contain,
+     * defaults to 32 MB.
+     *
+     * <p>Longer requests are answered with a permanent failure.</p>
+     */
+    public void setMaxRequestSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        maxRequestSize = size;
+    }
+
+    /**
+     * Sets the time in milliseconds a connection may block in a read
+     * before it is closed, defaults to one minute.
+     *
+     * <p>A value &lt;= 0 means no timeout at all.</p>
+     */
+    public void setIdleTimeout(int timeout) {
+        idleTimeout = timeout;
+    }
+
+    /**
+     * Sets the limits for connections and requests, must be called
+     * before the server is started.
+     *
+     * <p>The limit for queued requests applies to the requests being
+     * handled at the same time as there is no queue.</p>
+     * @param admission must not be null
+     */
+    public void setAdmissionControl(AdmissionControl admission) {
+        if (admission == null) {
+            throw new IllegalArgumentException("admission control must not"
+                                               + " be null");
+        }
+        this.admission = admission;
+    }
+
+    /**
+     * The limits for connections and requests, by default one that
+     * doesn't limit anything.
+     */
+    public AdmissionControl getAdmissionControl() {
+        return admission;
+    }
+
+    /**
+     * Binds the server socket and starts accepting connections.
+     * @throws QMQPException if the server cannot be started or has
+     *         been started before
+     */
+    public synchronized void start() throws QMQPException {
+        if (serverSocket != null || closed) {
+            throw new QMQPException("Server has already been started");
+        }
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(bindAddress, BACKLOG);
+        } catch (IOException ex) {
+            IOUtil.close(serverSocket, true);
+            throw new QMQPException("Failed to start server on "
+                                    + bindAddress, ex);
+        }
+        final ServerSocket ss = serverSocket;
+        Thread acceptor = new Thread(new Runnable() {
+                public void run() {
+                    accept(ss);
+                }
+            }, "qmqp-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * The port the server is listening on.
+     * @return -1 unless the server has been started
+     */
+    public synchronized int getPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes all open ones, requests
+     * that are being handled are not answered.
+     */
+    public synchronized void close() {
+        closed = true;
+        IOUtil.close(serverSocket, true);
+        executor.shutdown();
+        for (Socket s : open.keySet()) {
+            IOUtil.close(s, true);
+        }
+    }
+
+    private void accept(ServerSocket ss) {
+        while (!closed) {
+            final Socket s;
+            try {
+                s = ss.accept();
+            } catch (IOException ex) {
+                if (ss.isClosed()) {
+                    break;
+                }
+                // most likely out of file descriptors
+                pause();
+                continue;
+            }
+            open.put(s, Boolean.TRUE);
+            final boolean admitted = admission.tryOpen();
+            try {
+                executor.execute(new Runnable() {
+                        public void run() {
+                            serve(s, admitted);
+                        }
+                    });
+            } catch (RejectedExecutionException ex) {
+                if (admitted) {
+                    admission.closed();
+                }
+                open.remove(s);
+                IOUtil.close(s, true);
+            }
+        }
+    }
+
+    /**
+     * Reads one request, invokes the handler and writes the response.
+     * @param admitted whether the connection has been admitted by the
+     *        admission control
+     */
+    private void serve(Socket s, boolean admitted) {
+        int reserved = 0;
+        try {
+            if (closed) {
+                // close may have missed the socket
+                return;
+            }
+            s.setSoTimeout(Math.max(idleTimeout, 0));
+            final InputStream in =
+                new BufferedInputStream(s.getInputStream(), BUF_LEN);
+            Response response = null;
+            try {
+                if (admitted) {
+                    final int length = reqCodec.readLength(in, maxRequestSize);
+                    if (admission.tryReserve(length)) {
+                        reserved = length;
+                        response = handle(reqCodec.lazyReadContent(in,
+                                                                   length));
+                    }
+                }
+            } catch (QMQPException ex) {
+                response = Responses.malformed(ex.getMessage());
+            }
+            respond(s, in, response == null ? Responses.busy()
+                    : ByteBuffer.wrap(respCodec.toNetwork(response)));
+        } catch (SocketException ex) {
+            // connection reset or closed by close
+        } catch (IOException ex) {
+            // timed out or client went away, nobody to tell
+        } finally {
+            if (admitted) {
+                admission.closed();
+            }
+            admission.release(reserved);
+            open.remove(s);
+            IOUtil.close(s, true);
+        }
+    }
+
+    /**
+     * Invokes the handler unless too many requests are being handled.
+     * @return null if the request has been rejected
+     */
+    private Response handle(LazyRequest request) {
+        if (!admission.tryEnqueue()) {
+            return null;
+        }
+        try {
+            return Responses.handle(handler, request);
+        } finally {
+            admission.dequeued();
+        }
+    }
+
+    /**
+     * Writes the response and discards whatever has arrived beyond
+     * the part of the request that has been read.
+     *
+     * <p>Rejected and malformed requests may not have been read
+     * completely, closing the socket with unread input would reset
+     * the connection before the client has read the response.</p>
+     */
+    private static void respond(Socket s, InputStream in,
+                                ByteBuffer response) throws IOException {
+        IOUtil.write(s.getOutputStream(), response);
+        s.shutdownOutput();
+        in.skip(in.available());
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(ACCEPT_BACKOFF);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
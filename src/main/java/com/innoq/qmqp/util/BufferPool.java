@@ -0,0 +1,50 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of ByteBuffers that are recycled once they are no longer
+ * needed.
+ *
+ * <p>Implementations must be thread-safe, a buffer may be released
+ * by a different thread than the one that acquired it.</p>
+ *
+ * @see BufferPools
+ */
+public interface BufferPool {
+    /**
+     * Provides a cleared buffer.
+     * @param capacity the minimum capacity of the buffer, the buffer
+     *        may be bigger
+     * @return a buffer that is exclusively owned by the caller until
+     *         it is released
+     */
+    ByteBuffer acquire(int capacity);
+    /**
+     * Hands a buffer obtained from {@link #acquire acquire} back to
+     * the pool, the caller must not use it any longer.
+     * @param buffer may be null
+     */
+    void release(ByteBuffer buffer);
+    /**
+     * The capacity of the biggest buffers the pool recycles, bigger
+     * buffers are allocated on each call to acquire.
+     */
+    int getMaxCapacity();
+}
@@ -0,0 +1,65 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Access to the BufferPool used by the library unless a different one
+ * has been configured.
+ */
+public abstract class BufferPools {
+    private BufferPools() {}
+
+    /**
+     * A pool that allocates a new heap buffer for each call to acquire
+     * and doesn't recycle anything.
+     */
+    public static final BufferPool UNPOOLED = new BufferPool() {
+            public ByteBuffer acquire(int capacity) {
+                return ByteBuffer.allocate(capacity);
+            }
+            public void release(ByteBuffer buffer) {
+                // left to the garbage collector
+            }
+            public int getMaxCapacity() {
+                return 0;
+            }
+        };
+
+    private static volatile BufferPool defaultPool = new SizeClassBufferPool();
+
+    /**
+     * The default pool, initially a SizeClassBufferPool of heap
+     * buffers.
+     */
+    public static BufferPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Replaces the default pool, affects clients and codecs created
+     * afterwards.
+     * @param pool must not be null
+     */
+    public static void setDefault(BufferPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        defaultPool = pool;
+    }
+}
@@ -21,8 +21,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 
 /**
  * I/O utility functions.
@@ -38,17 +41,64 @@ public abstract class IOUtil {
      */
     public static byte[] readFully(InputStream is) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] buf = new byte[BUF_LEN];
-        int len = 0;
-        while (len >= 0) {
-            len = is.read(buf, 0, BUF_LEN);
-            if (len > 0) {
-                bos.write(buf, 0, len);
+        final BufferPool pool = BufferPools.getDefault();
+        final ByteBuffer pooled = pool.acquire(BUF_LEN);
+        try {
+            final byte[] buf = pooled.hasArray() ? pooled.array()
+                : new byte[BUF_LEN];
+            final int off = pooled.hasArray() ? pooled.arrayOffset() : 0;
+            final int max = pooled.hasArray() ? pooled.capacity() : BUF_LEN;
+            int len = 0;
+            while (len >= 0) {
+                len = is.read(buf, off, max);
+                if (len > 0) {
+                    bos.write(buf, off, len);
+                }
             }
+        } finally {
+            pool.release(pooled);
         }
         return bos.toByteArray();
     }
 
+    /**
+     * Writes the remaining content of the buffer to the stream
+     * without changing the buffer's position.
+     */
+    public static void write(OutputStream out, ByteBuffer buffer)
+        throws IOException {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(),
+                      buffer.arrayOffset() + buffer.position(),
+                      buffer.remaining());
+            return;
+        }
+        final ByteBuffer b = buffer.duplicate();
+        final byte[] chunk = new byte[Math.min(b.remaining(), BUF_LEN)];
+        while (b.hasRemaining()) {
+            final int n = Math.min(b.remaining(), chunk.length);
+            b.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+    }
+
+    /**
+     * Writes the content of all given buffers to the channel using
+     * gathering writes.
+     * @param out the channel to write to, must be in blocking mode
+     */
+    public static void writeFully(GatheringByteChannel out,
+                                  ByteBuffer[] buffers) throws IOException {
+        final int count = buffers.length;
+        int first = 0;
+        while (first < count) {
+            out.write(buffers, first, count - first);
+            while (first < count && !buffers[first].hasRemaining()) {
+                first++;
+            }
+        }
+    }
+
     /**
      * Closes the given Closeable and swallows any exception thrown in
      * close if swallowException asks for it.
@@ -0,0 +1,191 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BufferPool that recycles buffers whose capacities are powers of two.
+ *
+ * <p>Each request is rounded up to the next size class, starting at
+ * 512 bytes.  Every thread keeps a few buffers of each size class for
+ * itself so most acquire and release calls don't touch any shared
+ * state, further buffers are kept in shared queues.  The total
+ * capacity of the buffers in the shared queues is capped, buffers
+ * beyond the cap are left to the garbage collector.</p>
+ *
+ * <p>Virtual threads bypass the per thread caches and use the shared
+ * queues directly, they are usually too short lived for a cache of
+ * their own to pay off.</p>
+ */
+public class SizeClassBufferPool implements BufferPool {
+
+    private static final int MIN_SHIFT = 9;
+    private static final int THREAD_CACHE_SIZE = 4;
+    private static final int DEFAULT_MAX_CAPACITY = 256 * 1024;
+    private static final long DEFAULT_MAX_POOLED_BYTES = 16 * 1024 * 1024;
+
+    private final boolean direct;
+    private final int maxCapacity;
+    private final long maxPooledBytes;
+    private final List<Queue<ByteBuffer>> shared;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final ThreadLocal<ThreadCache> caches =
+        new ThreadLocal<ThreadCache>() {
+            // null for virtual threads, decided once per thread
+            protected ThreadCache initialValue() {
+                return VirtualThreads.isVirtual(Thread.currentThread()) ? null
+                    : new ThreadCache(shared.size());
+            }
+        };
+
+    /**
+     * Creates a pool of heap buffers of up to 256 KB that keeps at
+     * most 16 MB in its shared queues.
+     */
+    public SizeClassBufferPool() {
+        this(false, DEFAULT_MAX_CAPACITY, DEFAULT_MAX_POOLED_BYTES);
+    }
+
+    /**
+     * Creates a pool.
+     * @param direct whether the pool provides direct buffers
+     * @param maxCapacity the capacity of the biggest buffers that are
+     *        recycled, is rounded up to a power of two
+     * @param maxPooledBytes the maximum total capacity of the buffers
+     *        held in the shared queues
+     */
+    public SizeClassBufferPool(boolean direct, int maxCapacity,
+                               long maxPooledBytes) {
+        if (maxCapacity < 1 || maxCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("maxCapacity must be between"
+                                               + " 1 and 2^30");
+        }
+        this.direct = direct;
+        this.maxPooledBytes = maxPooledBytes;
+        final int classes = sizeClass(maxCapacity) + 1;
+        this.maxCapacity = capacity(classes - 1);
+        shared = new ArrayList<Queue<ByteBuffer>>(classes);
+        for (int i = 0; i < classes; i++) {
+            shared.add(new ConcurrentLinkedQueue<ByteBuffer>());
+        }
+    }
+
+    public ByteBuffer acquire(int capacity) {
+        if (capacity > maxCapacity) {
+            return allocate(capacity);
+        }
+        final int sizeClass = sizeClass(capacity);
+        final ThreadCache cache = caches.get();
+        ByteBuffer b = cache == null ? null : cache.poll(sizeClass);
+        if (b == null) {
+            b = shared.get(sizeClass).poll();
+            if (b == null) {
+                return allocate(capacity(sizeClass));
+            }
+            pooledBytes.addAndGet(-b.capacity());
+        }
+        b.clear();
+        return b;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() != direct
+            || buffer.isReadOnly()) {
+            return;
+        }
+        final int capacity = buffer.capacity();
+        if (capacity > maxCapacity || capacity < capacity(0)
+            || Integer.bitCount(capacity) != 1) {
+            // not one of ours
+            return;
+        }
+        final int sizeClass = sizeClass(capacity);
+        final ThreadCache cache = caches.get();
+        if (cache != null && cache.offer(sizeClass, buffer)) {
+            return;
+        }
+        if (pooledBytes.addAndGet(capacity) <= maxPooledBytes) {
+            shared.get(sizeClass).offer(buffer);
+        } else {
+            pooledBytes.addAndGet(-capacity);
+        }
+    }
+
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    /**
+     * The total capacity of the buffers held in the shared queues.
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity)
+            : ByteBuffer.allocate(capacity);
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity <= 1 << MIN_SHIFT) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+
+    private static int capacity(int sizeClass) {
+        return 1 << (sizeClass + MIN_SHIFT);
+    }
+
+    private static final class ThreadCache {
+        private final ByteBuffer[][] buffers;
+        private final int[] counts;
+
+        private ThreadCache(int classes) {
+            buffers = new ByteBuffer[classes][THREAD_CACHE_SIZE];
+            counts = new int[classes];
+        }
+
+        private ByteBuffer poll(int sizeClass) {
+            final int count = counts[sizeClass];
+            if (count == 0) {
+                return null;
+            }
+            counts[sizeClass] = count - 1;
+            final ByteBuffer b = buffers[sizeClass][count - 1];
+            buffers[sizeClass][count - 1] = null;
+            return b;
+        }
+
+        private boolean offer(int sizeClass, ByteBuffer b) {
+            final int count = counts[sizeClass];
+            if (count == THREAD_CACHE_SIZE) {
+                return false;
+            }
+            buffers[sizeClass][count] = b;
+            counts[sizeClass] = count + 1;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads for a library that is compiled for Java
+ * runtimes that don't have them.
+ *
+ * <p>The methods added by Java 21 are looked up reflectively.</p>
+ */
+public abstract class VirtualThreads {
+    private VirtualThreads() {}
+
+    private static final Method NEW_EXECUTOR =
+        method(Executors.class, "newVirtualThreadPerTaskExecutor");
+    private static final Method IS_VIRTUAL =
+        method(Thread.class, "isVirtual");
+
+    /**
+     * Whether the Java runtime supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each
+     * task.
+     * @throws UnsupportedOperationException if the Java runtime
+     *         doesn't support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_EXECUTOR == null) {
+            throw new UnsupportedOperationException("This Java runtime"
+                                                    + " doesn't support"
+                                                    + " virtual threads");
+        }
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException ex) {
+            throw new UnsupportedOperationException("Failed to create"
+                                                    + " executor", ex);
+        } catch (InvocationTargetException ex) {
+            throw new UnsupportedOperationException("Failed to create"
+                                                    + " executor",
+                                                    ex.getCause());
+        }
+    }
+
+    /**
+     * Whether the given thread is a virtual thread.
+     *
+     * <p>Uses reflection, so callers on hot paths should remember the
+     * result.</p>
+     */
+    public static boolean isVirtual(Thread t) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(IS_VIRTUAL.invoke(t));
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    private static Method method(Class<?> c, String name) {
+        try {
+            return c.getMethod(name);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+}
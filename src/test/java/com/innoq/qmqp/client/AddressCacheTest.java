@@ -0,0 +1,149 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddressCacheTest {
+
+    private static final byte[] FIRST = new byte[] { 10, 0, 0, 1 };
+    private static final byte[] SECOND = new byte[] { 10, 0, 0, 2 };
+
+    @Test
+    public void resolvesOnlyOnce() throws Exception {
+        CountingCache c = new CountingCache(60000, FIRST);
+        InetSocketAddress a = c.resolve("mail.example.org", 628);
+        c.resolve("mail.example.org", 628);
+        Assert.assertEquals(1, c.lookups.get());
+        Assert.assertEquals(628, a.getPort());
+        Assert.assertArrayEquals(FIRST, a.getAddress().getAddress());
+    }
+
+    @Test
+    public void rotatesAddresses() throws Exception {
+        CountingCache c = new CountingCache(60000, FIRST, SECOND);
+        Assert.assertArrayEquals(FIRST, c.resolve("mail.example.org", 628)
+                                 .getAddress().getAddress());
+        Assert.assertArrayEquals(SECOND, c.resolve("mail.example.org", 628)
+                                 .getAddress().getAddress());
+        Assert.assertArrayEquals(FIRST, c.resolve("mail.example.org", 628)
+                                 .getAddress().getAddress());
+    }
+
+    @Test
+    public void cachesFailures() throws Exception {
+        CountingCache c = new CountingCache(60000);
+        for (int i = 0; i < 2; i++) {
+            try {
+                c.resolve("mail.example.org", 628);
+                Assert.fail("expected an exception");
+            } catch (UnknownHostException ex) {
+                // expected
+            }
+        }
+        Assert.assertEquals(1, c.lookups.get());
+    }
+
+    @Test
+    public void retriesFailuresInBackground() throws Exception {
+        CountingCache c = new CountingCache(60000, 1);
+        try {
+            c.resolve("mail.example.org", 628);
+            Assert.fail("expected an exception");
+        } catch (UnknownHostException ex) {
+            // expected
+        }
+        Thread.sleep(10);
+        c.addresses = new byte[][] { FIRST };
+        try {
+            // expired, but the failure is still answered from the cache
+            c.resolve("mail.example.org", 628);
+            Assert.fail("expected an exception");
+        } catch (UnknownHostException ex) {
+            // expected
+        }
+        for (int i = 0; i < 100 && c.lookups.get() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertNotSame(Thread.currentThread(), c.lastLookup);
+        InetSocketAddress a = null;
+        for (int i = 0; i < 100 && a == null; i++) {
+            try {
+                a = c.resolve("mail.example.org", 628);
+            } catch (UnknownHostException ex) {
+                Thread.sleep(20);
+            }
+        }
+        Assert.assertNotNull(a);
+        Assert.assertArrayEquals(FIRST, a.getAddress().getAddress());
+    }
+
+    @Test
+    public void refreshesInBackground() throws Exception {
+        CountingCache c = new CountingCache(1, FIRST);
+        c.resolve("mail.example.org", 628);
+        Thread.sleep(10);
+        // expired, but still answered from the cache
+        Assert.assertNotNull(c.resolve("mail.example.org", 628));
+        for (int i = 0; i < 100 && c.lookups.get() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(2, c.lookups.get());
+    }
+
+    @Test
+    public void resolvesRealNames() throws Exception {
+        Assert.assertTrue(new AddressCache().resolve("localhost", 628)
+                          .getAddress().isLoopbackAddress());
+    }
+
+    private static class CountingCache extends AddressCache {
+        private final AtomicInteger lookups = new AtomicInteger();
+        private volatile byte[][] addresses;
+        private volatile Thread lastLookup;
+
+        private CountingCache(long ttl, byte[]... addresses) {
+            this(ttl, 60000, addresses);
+        }
+
+        private CountingCache(long ttl, long negativeTtl,
+                              byte[]... addresses) {
+            super(ttl, negativeTtl);
+            this.addresses = addresses;
+        }
+
+        InetAddress[] lookup(String host)
+            throws UnknownHostException {
+            lookups.incrementAndGet();
+            lastLookup = Thread.currentThread();
+            if (addresses.length == 0) {
+                throw new UnknownHostException(host);
+            }
+            InetAddress[] result = new InetAddress[addresses.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = InetAddress.getByAddress(host, addresses[i]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPConnectException;
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.testserver.QMQPTestServer;
+
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncQMQPClientTest {
+
+    private static final Random RAND = new Random();
+    private static final String SENDER = "bar@baz";
+    private QMQPTestServer server;
+    private AsyncQMQPClient client;
+
+    @After
+    public void shutdown() {
+        if (server != null) {
+            server.stop();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    public void whenThingsGoWell() throws Exception {
+        initializeServer(0);
+        Response res = sendRequest(0, null).get();
+        Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+        Assert.assertEquals(SENDER, res.getDetails());
+    }
+
+    @Test
+    public void blockingSendWorks() {
+        initializeServer(0);
+        client = new AsyncQMQPClient("localhost", server.getPort());
+        startServer();
+        Response res = client.send(new Request(new byte[0], SENDER,
+                                               "foo@example.org"));
+        Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+    }
+
+    @Test
+    public void callbackIsNotified() throws Exception {
+        initializeServer(0);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Response> result =
+            new AtomicReference<Response>();
+        sendRequest(0, new SendCallback() {
+                public void responseReceived(Request req, Response res) {
+                    result.set(res);
+                    latch.countDown();
+                }
+                public void sendFailed(Request req, QMQPException ex) {
+                    latch.countDown();
+                }
+            });
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(SENDER, result.get().getDetails());
+    }
+
+    @Test
+    public void readDelayWithTimeout() throws Exception {
+        initializeServer(3000);
+        try {
+            sendRequest(1000, null).get();
+            Assert.fail("expected an exception");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof QMQPException);
+        }
+    }
+
+    @Test(expected = QMQPException.class)
+    public void rejectsTooLongResponses() {
+        initializeServer(0);
+        client = new AsyncQMQPClient("localhost", server.getPort());
+        client.setMaxResponseSize(SENDER.length());
+        startServer();
+        client.send(new Request(new byte[0], SENDER, "foo@example.org"));
+    }
+
+    @Test(expected = QMQPException.class)
+    public void connectFailureIsReported() {
+        initializeServer(0);
+        client = new AsyncQMQPClient("localhost", server.getPort());
+        client.send(new Request(new byte[0], SENDER, "foo@example.org"));
+    }
+
+    @Test
+    public void writeStallWithTimeout() throws Exception {
+        ServerSocket ss = new ServerSocket(0);
+        try {
+            client = new AsyncQMQPClient("localhost", ss.getLocalPort());
+            client.setWriteTimeout(500);
+            Future<Response> f =
+                client.sendAsync(new Request(new byte[32 * 1024 * 1024],
+                                             SENDER, "foo@example.org"));
+            // accepted but never read from
+            Socket s = ss.accept();
+            try {
+                f.get(10, TimeUnit.SECONDS);
+                Assert.fail("expected an exception");
+            } catch (ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof QMQPException);
+            } finally {
+                s.close();
+            }
+        } finally {
+            ss.close();
+        }
+    }
+
+    @Test
+    public void unknownHostFailsWithoutReachingTheIOThread()
+        throws Exception {
+        client = new AsyncQMQPClient("no-such-host.invalid", 628);
+        Future<Response> f =
+            client.sendAsync(new Request(new byte[0], SENDER,
+                                         "foo@example.org"));
+        Assert.assertTrue(f.isDone());
+        try {
+            f.get();
+            Assert.fail("expected an exception");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof QMQPConnectException);
+        }
+    }
+
+    @Test(expected = QMQPException.class)
+    public void sendingAfterCloseFails() {
+        client = new AsyncQMQPClient();
+        client.close();
+        client.send(new Request(new byte[0], SENDER, "foo@example.org"));
+    }
+
+    private void initializeServer(int writeDelay) {
+        server = new QMQPTestServer(RAND.nextInt(Character.MAX_VALUE - 1024)
+                                    + 1024, writeDelay);
+    }
+
+    private void startServer() {
+        server.handleOneRequest(new QMQPTestServer.TestRequestHandler() {
+                public Response handle(Request r) {
+                    return new Response(ReturnCode.OK, r.getSender());
+                }
+            });
+    }
+
+    private Future<Response> sendRequest(int readTimeout,
+                                         SendCallback callback) {
+        client = new AsyncQMQPClient("localhost", server.getPort());
+        client.setReadTimeout(readTimeout);
+        startServer();
+        return client.sendAsync(new Request(new byte[0], SENDER,
+                                            "foo@example.org"), callback);
+    }
+}
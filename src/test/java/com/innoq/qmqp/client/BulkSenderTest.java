@@ -0,0 +1,260 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+
+import java.util.Iterator;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BulkSenderTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresPositiveConcurrency() {
+        BulkSender.sendAll(new FakeClient(), new Requests(1), 0, null);
+    }
+
+    @Test
+    public void sendsAllRequestsWithBoundedConcurrency() {
+        FakeClient client = new FakeClient();
+        Counter counter = new Counter();
+        BulkSender.sendAll(client, new Requests(200), 4, counter);
+        Assert.assertEquals(200, counter.ok.get());
+        Assert.assertEquals(0, counter.failed.get());
+        Assert.assertTrue(client.maxInFlight.get() <= 4);
+        Assert.assertTrue(client.maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void failuresAreReportedToCallback() {
+        FakeClient client = new FakeClient();
+        client.failEvery = 3;
+        Counter counter = new Counter();
+        BulkSender.sendAll(client, new Requests(30), 2, counter);
+        Assert.assertEquals(20, counter.ok.get());
+        Assert.assertEquals(10, counter.failed.get());
+    }
+
+    @Test
+    public void inputIsConsumedLazily() {
+        final Requests requests = new Requests(100);
+        final AtomicInteger maxAhead = new AtomicInteger();
+        final AtomicInteger done = new AtomicInteger();
+        BulkSender.sendAll(new FakeClient(), requests, 3, new Counter() {
+                public void responseReceived(Request r, Response res) {
+                    int ahead = requests.pulled.get() - done.incrementAndGet();
+                    if (ahead > maxAhead.get()) {
+                        maxAhead.set(ahead);
+                    }
+                }
+            });
+        Assert.assertEquals(100, done.get());
+        Assert.assertTrue(maxAhead.get() < 3);
+    }
+
+    @Test
+    public void asyncClientsDontNeedWorkers() {
+        final FakeClient blocking = new FakeClient();
+        Counter counter = new Counter();
+        BulkSender.sendAll(new FakeAsyncClient(blocking), new Requests(100),
+                           5, counter);
+        Assert.assertEquals(100, counter.ok.get());
+        Assert.assertTrue(blocking.maxInFlight.get() <= 5);
+    }
+
+    @Test(timeout = 10000)
+    public void synchronousFailuresDontLeakPermits() {
+        Counter counter = new Counter();
+        BulkSender.sendAll(new FakeAsyncClient(new FakeClient()) {
+                public Future<Response> sendAsync(Request r,
+                                                  SendCallback cb) {
+                    throw new QMQPException("rejected");
+                }
+            }, new Requests(10), 2, counter);
+        Assert.assertEquals(0, counter.ok.get());
+        Assert.assertEquals(10, counter.failed.get());
+    }
+
+    @Test
+    public void callbackFailuresStopSendingForAllClients() {
+        IQMQPClient[] clients = new IQMQPClient[] {
+            new FakeClient(), new FakeAsyncClient(new FakeClient())
+        };
+        for (IQMQPClient c : clients) {
+            Requests requests = new Requests(1000);
+            final RuntimeException boom = new IllegalStateException();
+            try {
+                sendAll(c, requests, 2, new Counter() {
+                        public void responseReceived(Request r,
+                                                     Response res) {
+                            throw boom;
+                        }
+                    });
+                Assert.fail("expected an exception");
+            } catch (IllegalStateException ex) {
+                Assert.assertSame(boom, ex);
+            }
+            Assert.assertTrue(requests.pulled.get() < 1000);
+        }
+    }
+
+    @Test
+    public void asyncInputFailuresWaitForExchangesInFlight() {
+        final Counter counter = new Counter();
+        final Requests requests = new Requests(3);
+        Iterator<Request> failing = new Iterator<Request>() {
+                public boolean hasNext() {
+                    return true;
+                }
+                public Request next() {
+                    if (!requests.hasNext()) {
+                        throw new IllegalStateException();
+                    }
+                    return requests.next();
+                }
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        try {
+            BulkSender.sendAll(new FakeAsyncClient(new FakeClient()),
+                               failing, 5, counter);
+            Assert.fail("expected an exception");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        Assert.assertEquals(3, counter.ok.get());
+    }
+
+    private static void sendAll(IQMQPClient c, Iterator<Request> requests,
+                                int concurrency, SendCallback cb) {
+        if (c instanceof IAsyncQMQPClient) {
+            BulkSender.sendAll((IAsyncQMQPClient) c, requests, concurrency,
+                               cb);
+        } else {
+            BulkSender.sendAll(c, requests, concurrency, cb);
+        }
+    }
+
+    private static class Requests implements Iterator<Request> {
+        private final int count;
+        private final AtomicInteger pulled = new AtomicInteger();
+
+        Requests(int count) {
+            this.count = count;
+        }
+
+        public boolean hasNext() {
+            return pulled.get() < count;
+        }
+
+        public Request next() {
+            pulled.incrementAndGet();
+            return new Request(new byte[0], "bar@baz", "foo@example.org");
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Counter implements SendCallback {
+        final AtomicInteger ok = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        public void responseReceived(Request r, Response res) {
+            ok.incrementAndGet();
+        }
+
+        public void sendFailed(Request r, QMQPException ex) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private static class FakeClient implements IQMQPClient {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final AtomicInteger sent = new AtomicInteger();
+        int failEvery;
+
+        public Response send(Request r) {
+            int now = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                if (now > maxInFlight.get()) {
+                    maxInFlight.set(now);
+                }
+            }
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException ex) {
+                throw new QMQPException("interrupted", ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            if (failEvery > 0 && sent.incrementAndGet() % failEvery == 0) {
+                throw new QMQPException("failed");
+            }
+            return new Response(ReturnCode.OK, "ok");
+        }
+
+        public void sendAll(Iterable<Request> requests, int concurrency,
+                            SendCallback cb) {
+            BulkSender.sendAll(this, requests.iterator(), concurrency, cb);
+        }
+
+        public void sendAll(Iterator<Request> requests, int concurrency,
+                            SendCallback cb) {
+            BulkSender.sendAll(this, requests, concurrency, cb);
+        }
+
+        public void setConnectTimeout(int timeout) { }
+        public void setReadTimeout(int timeout) { }
+    }
+
+    private static class FakeAsyncClient extends FakeClient
+        implements IAsyncQMQPClient {
+        private final FakeClient delegate;
+
+        FakeAsyncClient(FakeClient delegate) {
+            this.delegate = delegate;
+        }
+
+        public Future<Response> sendAsync(Request r) {
+            return sendAsync(r, null);
+        }
+
+        public Future<Response> sendAsync(final Request r,
+                                          final SendCallback cb) {
+            final ResponseFuture f = new ResponseFuture(r, cb);
+            new Thread() {
+                public void run() {
+                    f.complete(delegate.send(r));
+                }
+            }.start();
+            return f;
+        }
+
+        public void close() { }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPConnectException;
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClusterQMQPClientTest {
+
+    private static final Request REQUEST =
+        new Request(new byte[0], "bar@baz", "foo@example.org");
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresEndpoints() {
+        new ClusterQMQPClient(new ArrayList<Endpoint>());
+    }
+
+    @Test
+    public void roundRobinUsesAllServers() {
+        RecordingCluster c = new RecordingCluster(LoadBalancing.ROUND_ROBIN,
+                                                  "a", "b", "c");
+        for (int i = 0; i < 6; i++) {
+            c.send(REQUEST);
+        }
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "a", "b", "c"),
+                            c.used);
+    }
+
+    @Test
+    public void failsOverOnConnectFailures() {
+        RecordingCluster c = new RecordingCluster(LoadBalancing.ROUND_ROBIN,
+                                                  "down", "b");
+        Response r = c.send(REQUEST);
+        Assert.assertEquals("b", r.getDetails());
+        Assert.assertEquals(Arrays.asList("down", "b"), c.used);
+        c.used.clear();
+        // "down" has been marked down and is tried last
+        c.send(REQUEST);
+        c.send(REQUEST);
+        Assert.assertEquals(Arrays.asList("b", "b"), c.used);
+    }
+
+    @Test
+    public void retriesServersAfterDownTime() {
+        RecordingCluster c = new RecordingCluster(LoadBalancing.ROUND_ROBIN,
+                                                  "down", "b");
+        c.setDownTime(0);
+        c.send(REQUEST);
+        c.used.clear();
+        c.send(REQUEST);
+        c.send(REQUEST);
+        Assert.assertEquals(Arrays.asList("b", "down", "b"), c.used);
+    }
+
+    @Test(expected = QMQPConnectException.class)
+    public void failsIfAllServersAreDown() {
+        new RecordingCluster(LoadBalancing.ROUND_ROBIN, "down", "down2")
+            .send(REQUEST);
+    }
+
+    @Test
+    public void otherFailuresAreNotRetried() {
+        RecordingCluster c = new RecordingCluster(LoadBalancing.ROUND_ROBIN,
+                                                  "broken", "b");
+        try {
+            c.send(REQUEST);
+            Assert.fail("expected an exception");
+        } catch (QMQPException ex) {
+            Assert.assertFalse(ex instanceof QMQPConnectException);
+        }
+        Assert.assertEquals(Arrays.asList("broken"), c.used);
+    }
+
+    @Test
+    public void leastOutstandingPrefersIdleServers() {
+        RecordingCluster c =
+            new RecordingCluster(LoadBalancing.LEAST_OUTSTANDING, "a", "b");
+        c.recorder.nestedSends = 2;
+        c.send(REQUEST);
+        // the nested sends happen while "a" is busy
+        Assert.assertEquals(Arrays.asList("a", "b", "b"), c.used);
+    }
+
+    private static class RecordingCluster extends ClusterQMQPClient {
+        private final Recorder recorder;
+        private final List<String> used;
+
+        RecordingCluster(LoadBalancing strategy, String... hosts) {
+            this(new Recorder(), strategy, hosts);
+        }
+
+        private RecordingCluster(Recorder recorder, LoadBalancing strategy,
+                                 String... hosts) {
+            super(endpoints(hosts), strategy, recorder);
+            this.recorder = recorder;
+            recorder.cluster = this;
+            used = recorder.used;
+        }
+
+        private static List<Endpoint> endpoints(String... hosts) {
+            List<Endpoint> l = new ArrayList<Endpoint>();
+            for (String h : hosts) {
+                l.add(new Endpoint(h));
+            }
+            return l;
+        }
+    }
+
+    private static class Recorder implements ClientFactory {
+        private final List<String> used = new ArrayList<String>();
+        private int nestedSends;
+        private ClusterQMQPClient cluster;
+
+        public IQMQPClient createClient(final Endpoint e) {
+            return new IQMQPClient() {
+                public Response send(Request r) {
+                    used.add(e.getHost());
+                    if (e.getHost().startsWith("down")) {
+                        throw new QMQPConnectException("down");
+                    }
+                    if (e.getHost().equals("broken")) {
+                        throw new QMQPException("broken");
+                    }
+                    int nested = nestedSends;
+                    nestedSends = 0;
+                    for (int i = 0; i < nested; i++) {
+                        cluster.send(r);
+                    }
+                    return new Response(ReturnCode.OK, e.getHost());
+                }
+                public void setConnectTimeout(int timeout) { }
+                public void setReadTimeout(int timeout) { }
+            };
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.testserver.QMQPTestServer;
+import com.innoq.qmqp.util.VirtualThreads;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class ExecutorQMQPClientTest {
+
+    private static final Random RAND = new Random();
+    private static final String SENDER = "bar@baz";
+    private QMQPTestServer server;
+    private ExecutorQMQPClient client;
+
+    @After
+    public void shutdown() {
+        if (server != null) {
+            server.stop();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    public void sendsFromExecutor() throws Exception {
+        initializeServer(0);
+        client = new ExecutorQMQPClient(new QMQPClient(server.getPort()),
+                                        Executors.newSingleThreadExecutor());
+        assertCorrectExecution();
+    }
+
+    @Test
+    public void sendsFromVirtualThread() throws Exception {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+        initializeServer(0);
+        client = new VirtualThreadQMQPClient("localhost", server.getPort());
+        assertCorrectExecution();
+    }
+
+    @Test
+    public void readDelayWithTimeout() throws Exception {
+        initializeServer(3000);
+        client = new ExecutorQMQPClient(new QMQPClient(server.getPort()),
+                                        Executors.newSingleThreadExecutor());
+        client.setReadTimeout(1000);
+        startServer();
+        try {
+            client.sendAsync(request()).get();
+            Assert.fail("expected an exception");
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof QMQPException);
+        }
+    }
+
+    @Test(expected = QMQPException.class)
+    public void sendingAfterCloseFails() {
+        client = new ExecutorQMQPClient(new QMQPClient(),
+                                        Executors.newSingleThreadExecutor());
+        client.close();
+        ((ResponseFuture) client.sendAsync(request())).join();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void virtualThreadsRequireSupport() {
+        Assume.assumeTrue(!VirtualThreads.isSupported());
+        new VirtualThreadQMQPClient();
+    }
+
+    private void assertCorrectExecution() throws Exception {
+        startServer();
+        Response res = client.sendAsync(request()).get();
+        Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+        Assert.assertEquals(SENDER, res.getDetails());
+    }
+
+    private void initializeServer(int writeDelay) {
+        server = new QMQPTestServer(RAND.nextInt(Character.MAX_VALUE - 1024)
+                                    + 1024, writeDelay);
+    }
+
+    private void startServer() {
+        server.handleOneRequest(new QMQPTestServer.TestRequestHandler() {
+                public Response handle(Request r) {
+                    return new Response(ReturnCode.OK, r.getSender());
+                }
+            });
+    }
+
+    private static Request request() {
+        return new Request(new byte[0], SENDER, "foo@example.org");
+    }
+}
@@ -16,13 +16,29 @@
 
 package com.innoq.qmqp.client;
 
+import com.innoq.qmqp.codec.EnvelopeTemplate;
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.codec.ResponseCodec;
+import com.innoq.qmqp.protocol.FileMessageSource;
+import com.innoq.qmqp.protocol.LargeEnvelopeRequest;
 import com.innoq.qmqp.protocol.QMQPException;
 import com.innoq.qmqp.protocol.Request;
 import com.innoq.qmqp.protocol.Response;
 import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.protocol.StreamingRequest;
 import com.innoq.qmqp.testserver.QMQPTestServer;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -65,6 +81,281 @@ public class QMQPClientTest {
         sendRequest(1000);
     }
 
+    @Test
+    public void sendsStreamingRequests() throws Exception {
+        assertStreamingRequest("Subject: Hi\r\n\r\nHi there\r\n", 22);
+    }
+
+    @Test
+    public void sendsFilesWithoutCrLfs() throws Exception {
+        assertStreamingRequest("Subject: Hi\n\nHi there\n", 22);
+    }
+
+    @Test
+    public void sendsTemplates() throws Exception {
+        initializeServer(0);
+        server.handleOneRequest(new QMQPTestServer.TestRequestHandler() {
+                public Response handle(Request r) {
+                    return new Response(ReturnCode.OK,
+                                        r.getMessage().length + " "
+                                        + r.getSender() + " "
+                                        + r.getRecipients()[1]);
+                }
+            });
+        EnvelopeTemplate t = new RequestCodec()
+            .toTemplate("Subject: Hi\r\n\r\nHi there\r\n".getBytes("ASCII"),
+                        SENDER);
+        Response res = new QMQPClient(server.getPort())
+            .send(t, "foo@example.org", "bar@example.org");
+        Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+        Assert.assertEquals("22 " + SENDER + " bar@example.org",
+                            res.getDetails());
+    }
+
+    @Test
+    public void sendsLargeEnvelopes() throws Exception {
+        initializeServer(0);
+        server.handleOneRequest(new QMQPTestServer.TestRequestHandler() {
+                public Response handle(Request r) {
+                    return new Response(ReturnCode.OK,
+                                        String.valueOf(r.getRecipients()
+                                                       .length));
+                }
+            });
+        List<byte[]> addresses = new ArrayList<byte[]>();
+        for (int i = 0; i < 5000; i++) {
+            addresses.add(("member" + i + "@example.org").getBytes("ASCII"));
+        }
+        Response res = new QMQPClient(server.getPort())
+            .send(new LargeEnvelopeRequest(ByteBuffer.wrap(new byte[] { 'x' }),
+                                           SENDER, addresses));
+        Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+        Assert.assertEquals("5000", res.getDetails());
+    }
+
+    @Test(expected = QMQPException.class)
+    public void missingStreamingMessageFailsBeforeConnecting() {
+        File missing = new File("/does/not/exist");
+        new QMQPClient(1).send(new StreamingRequest(new FileMessageSource(missing),
+                                                    SENDER, "foo@example.org"));
+    }
+
+    @Test
+    public void usesWarmConnections() throws Exception {
+        initializeServer(0);
+        startServer();
+        Endpoint e = new Endpoint("localhost", server.getPort());
+        SpeculativeConnector connector =
+            new SpeculativeConnector(1, 1, 10000);
+        try {
+            connector.warmUp(e);
+            for (int i = 0; i < 100 && connector.available(e) == 0; i++) {
+                Thread.sleep(20);
+            }
+            Assert.assertEquals(1, connector.available(e));
+            QMQPClient client = new QMQPClient(server.getPort());
+            client.setSpeculativeConnector(connector);
+            Response res = client.send(new Request(new byte[0], SENDER,
+                                                   "foo@example.org"));
+            Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+        } finally {
+            connector.close();
+        }
+    }
+
+    @Test
+    public void retriesWhenWarmConnectionHasBeenClosed() throws Exception {
+        final ServerSocket ss = new ServerSocket(0);
+        final CountDownLatch closed = new CountDownLatch(1);
+        Thread t = new Thread() {
+                public void run() {
+                    try {
+                        // closes the warm connection like an idle timeout
+                        ss.accept().close();
+                        closed.countDown();
+                        while (true) {
+                            answer(ss.accept());
+                        }
+                    } catch (IOException ex) {
+                        // server socket closed
+                    }
+                }
+            };
+        t.setDaemon(true);
+        t.start();
+        Endpoint e = new Endpoint("localhost", ss.getLocalPort());
+        SpeculativeConnector connector =
+            new SpeculativeConnector(1, 1, 10000);
+        try {
+            connector.warmUp(e);
+            for (int i = 0; i < 100 && connector.available(e) == 0; i++) {
+                Thread.sleep(20);
+            }
+            closed.await();
+            Thread.sleep(100);
+            QMQPClient client = new QMQPClient(ss.getLocalPort());
+            client.setReadTimeout(5000);
+            client.setSpeculativeConnector(connector);
+            Response res = client.send(new Request(new byte[0], SENDER,
+                                                   "foo@example.org"));
+            Assert.assertEquals("fresh", res.getDetails());
+        } finally {
+            connector.close();
+            ss.close();
+        }
+    }
+
+    @Test
+    public void doesntResendOnceTheRequestHasBeenWritten()
+        throws Exception {
+        final ServerSocket ss = new ServerSocket(0);
+        final AtomicInteger resent = new AtomicInteger();
+        Thread t = new Thread() {
+                public void run() {
+                    try {
+                        // reads the request but fails before answering
+                        Socket s = ss.accept();
+                        s.getInputStream().read(new byte[1024]);
+                        s.close();
+                        while (true) {
+                            if (ss.accept().getInputStream()
+                                .read(new byte[1024]) > 0) {
+                                resent.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException ex) {
+                        // server socket closed
+                    }
+                }
+            };
+        t.setDaemon(true);
+        t.start();
+        Endpoint e = new Endpoint("localhost", ss.getLocalPort());
+        SpeculativeConnector connector =
+            new SpeculativeConnector(1, 1, 10000);
+        try {
+            connector.warmUp(e);
+            for (int i = 0; i < 100 && connector.available(e) == 0; i++) {
+                Thread.sleep(20);
+            }
+            QMQPClient client = new QMQPClient(ss.getLocalPort());
+            client.setReadTimeout(5000);
+            client.setSpeculativeConnector(connector);
+            try {
+                client.send(new Request(new byte[0], SENDER,
+                                        "foo@example.org"));
+                Assert.fail("expected an exception");
+            } catch (QMQPException ex) {
+                Assert.assertTrue(ex.getMessage().startsWith("Failed to read"));
+            }
+            // the connector's replacement stays empty
+            connector.close();
+            Thread.sleep(200);
+            Assert.assertEquals(0, resent.get());
+        } finally {
+            connector.close();
+            ss.close();
+        }
+    }
+
+    @Test
+    public void doesntWaitForTheServerToCloseTheConnection()
+        throws Exception {
+        final ServerSocket ss = new ServerSocket(0);
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread t = new Thread() {
+                public void run() {
+                    try {
+                        Socket s = ss.accept();
+                        s.getInputStream().read(new byte[1024]);
+                        s.getOutputStream().write("3:Kok,".getBytes("ASCII"));
+                        done.await();
+                        s.close();
+                    } catch (Exception ex) {
+                        // test will fail
+                    }
+                }
+            };
+        t.setDaemon(true);
+        t.start();
+        try {
+            QMQPClient client = new QMQPClient(ss.getLocalPort());
+            client.setReadTimeout(5000);
+            Response res = client.send(new Request(new byte[0], SENDER,
+                                                   "foo@example.org"));
+            Assert.assertEquals("ok", res.getDetails());
+        } finally {
+            done.countDown();
+            ss.close();
+        }
+    }
+
+    @Test(expected = QMQPException.class)
+    public void rejectsTooLongResponses() {
+        initializeServer(0);
+        server.handleOneRequest(new QMQPTestServer.TestRequestHandler() {
+                public Response handle(Request r) {
+                    return new Response(ReturnCode.OK, "0123456789");
+                }
+            });
+        QMQPClient client = new QMQPClient(server.getPort());
+        client.setMaxResponseSize(10);
+        client.send(new Request(new byte[0], SENDER, "foo@example.org"));
+    }
+
+    private void assertStreamingRequest(String message, int expectedLength)
+        throws Exception {
+        File f = File.createTempFile("qmqp", ".eml");
+        try {
+            FileOutputStream out = new FileOutputStream(f);
+            out.write(message.getBytes("ASCII"));
+            out.close();
+            initializeServer(0);
+            server.handleOneRequest(new QMQPTestServer.TestRequestHandler() {
+                    public Response handle(Request r) {
+                        return new Response(ReturnCode.OK,
+                                            String.valueOf(r.getMessage()
+                                                           .length));
+                    }
+                });
+            QMQPClient client = new QMQPClient(server.getPort());
+            Response res =
+                client.send(new StreamingRequest(new FileMessageSource(f),
+                                                 SENDER, "foo@example.org"));
+            Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+            Assert.assertEquals(String.valueOf(expectedLength),
+                                res.getDetails());
+        } finally {
+            f.delete();
+        }
+    }
+
+    private static void answer(final Socket s) {
+        // the connector may open connections that are never used
+        Thread t = new Thread() {
+                public void run() {
+                    try {
+                        s.getInputStream().read(new byte[1024]);
+                        s.getOutputStream().write(new ResponseCodec()
+                            .toNetwork(new Response(ReturnCode.OK, "fresh")));
+                        s.close();
+                    } catch (IOException ex) {
+                        // test will fail
+                    }
+                }
+            };
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void startServer() {
+        server.handleOneRequest(new QMQPTestServer.TestRequestHandler() {
+                public Response handle(Request r) {
+                    return new Response(ReturnCode.OK, r.getSender());
+                }
+            });
+    }
+
     private void initializeServer(int writeDelay) {
         server = new QMQPTestServer(RAND.nextInt(Character.MAX_VALUE - 1024)
                                     + 1024, writeDelay);
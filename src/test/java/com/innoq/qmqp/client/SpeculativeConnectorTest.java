@@ -0,0 +1,164 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.client;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpeculativeConnectorTest {
+
+    private ServerSocket server;
+    private SpeculativeConnector connector;
+
+    @After
+    public void shutdown() throws Exception {
+        if (connector != null) {
+            connector.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresPositiveIdleTime() {
+        new SpeculativeConnector(1, 1, 0);
+    }
+
+    @Test
+    public void opensConnectionsInBackground() throws Exception {
+        Endpoint e = startServer();
+        connector = new SpeculativeConnector(2, 10, 10000);
+        Assert.assertNull(connector.acquire(e));
+        waitForSockets(e, 2);
+        Socket s = connector.acquire(e);
+        Assert.assertNotNull(s);
+        Assert.assertTrue(s.isConnected());
+        s.close();
+        // replacement is opened in the background
+        waitForSockets(e, 2);
+    }
+
+    @Test
+    public void respectsGlobalCap() throws Exception {
+        Endpoint e = startServer();
+        connector = new SpeculativeConnector(5, 3, 10000);
+        connector.warmUp(e);
+        waitForSockets(e, 3);
+        Thread.sleep(200);
+        Assert.assertEquals(3, connector.available(e));
+    }
+
+    @Test
+    public void expiresIdleConnections() throws Exception {
+        Endpoint e = startServer();
+        connector = new SpeculativeConnector(1, 1, 200);
+        connector.warmUp(e);
+        waitForSockets(e, 1);
+        // endpoint is never used, so expired connections aren't replaced
+        Thread.sleep(1000);
+        Assert.assertEquals(0, connector.available(e));
+    }
+
+    @Test
+    public void unreachableServersAreIgnored() throws Exception {
+        Endpoint e = startServer();
+        server.close();
+        connector = new SpeculativeConnector(1, 1, 10000);
+        connector.warmUp(e);
+        Thread.sleep(200);
+        Assert.assertNull(connector.acquire(e));
+    }
+
+    @Test
+    public void discardsConnectionsClosedByTheServer() throws Exception {
+        Endpoint e = startServer();
+        connector = new SpeculativeConnector(1, 1, 10000);
+        connector.warmUp(e);
+        waitForSockets(e, 1);
+        server.accept().close();
+        Thread.sleep(100);
+        Assert.assertNull(connector.acquire(e));
+    }
+
+    @Test
+    public void resolvesThroughAddressCache() throws Exception {
+        startServer();
+        final AtomicInteger lookups = new AtomicInteger();
+        AddressCache cache = new AddressCache() {
+                InetAddress[] lookup(String host)
+                    throws UnknownHostException {
+                    lookups.incrementAndGet();
+                    return new InetAddress[] {
+                        InetAddress.getByName("127.0.0.1")
+                    };
+                }
+            };
+        Endpoint e = new Endpoint("qmqp.invalid", server.getLocalPort());
+        connector = new SpeculativeConnector(2, 10, 10000);
+        connector.setAddressCache(cache);
+        connector.warmUp(e);
+        waitForSockets(e, 2);
+        Assert.assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void runtimeFailuresReleaseTheirSlot() throws Exception {
+        startServer();
+        final AtomicInteger lookups = new AtomicInteger();
+        AddressCache cache = new AddressCache() {
+                InetAddress[] lookup(String host)
+                    throws UnknownHostException {
+                    if (lookups.incrementAndGet() == 1) {
+                        throw new IllegalStateException("resolver broken");
+                    }
+                    return new InetAddress[] {
+                        InetAddress.getByName("127.0.0.1")
+                    };
+                }
+            };
+        Endpoint e = new Endpoint("qmqp.invalid", server.getLocalPort());
+        connector = new SpeculativeConnector(1, 1, 10000);
+        connector.setAddressCache(cache);
+        connector.warmUp(e);
+        for (int i = 0; i < 100 && lookups.get() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        connector.warmUp(e);
+        waitForSockets(e, 1);
+    }
+
+    private Endpoint startServer() throws Exception {
+        server = new ServerSocket(0);
+        return new Endpoint("localhost", server.getLocalPort());
+    }
+
+    private void waitForSockets(Endpoint e, int count) throws Exception {
+        for (int i = 0; i < 100 && connector.available(e) < count; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(count, connector.available(e));
+    }
+}
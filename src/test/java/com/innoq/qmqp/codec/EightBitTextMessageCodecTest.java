@@ -16,6 +16,9 @@
 
 package com.innoq.qmqp.codec;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -82,4 +85,89 @@ public class EightBitTextMessageCodecTest {
                                  new EightBitTextMessageCodec().toMessage(b));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void onlyTheCrRightBeforeLfIsRemoved() {
+        final byte[] b = new byte[] {
+            '\r', '\n', 'a', '\r', '\r', '\n', 'b'
+        };
+        final byte[] expected = new byte[] { '\n', 'a', '\r', '\n', 'b' };
+        EightBitTextMessageCodec codec = new EightBitTextMessageCodec();
+        Assert.assertArrayEquals(expected, codec.toMessage(b));
+        Assert.assertEquals(expected.length, codec.messageLength(b));
+    }
+
+    @Test
+    public void wordScanFindsWhatBytewiseScanFinds() {
+        final java.util.Random rand = new java.util.Random(42);
+        final byte[] alphabet = new byte[] { '\r', '\n', 'a', (byte) 0x8d };
+        for (int round = 0; round < 200; round++) {
+            final byte[] b = new byte[rand.nextInt(200)];
+            for (int i = 0; i < b.length; i++) {
+                b[i] = alphabet[rand.nextInt(alphabet.length)];
+            }
+            final java.nio.ByteBuffer words = java.nio.ByteBuffer.wrap(b)
+                .order(java.nio.ByteOrder.LITTLE_ENDIAN);
+            for (int from = 0; from < b.length; from++) {
+                Assert.assertEquals(EightBitTextMessageCodec
+                                    .indexOfCrLfBytewise(b, from, b.length),
+                                    EightBitTextMessageCodec
+                                    .indexOfCrLf(b, words, from, b.length));
+            }
+            final EightBitTextMessageCodec codec =
+                new EightBitTextMessageCodec();
+            Assert.assertEquals(codec.toMessage(b).length,
+                                codec.messageLength(b));
+        }
+    }
+
+    @Test
+    public void longMessagesAreCollapsed() {
+        final StringBuilder in = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            in.append("line ").append(i).append("\r\n");
+            expected.append("line ").append(i).append('\n');
+        }
+        Assert.assertEquals(expected.toString(),
+                            new String(new EightBitTextMessageCodec()
+                                       .toMessage(in.toString().getBytes())));
+    }
+
+    @Test
+    public void streamingMatchesArrayEncoding() throws IOException {
+        final byte[][] inputs = new byte[][] {
+            new byte[0],
+            new byte[] { 'a', '\r', '\n', 'b' },
+            new byte[] { '\r', '\n', '\r', '\n' },
+            new byte[] { '\r', '\r', '\n', '\r' },
+            new byte[] { 'a', '\r', 'b', '\n' },
+        };
+        for (byte[] b : inputs) {
+            assertStreamingMatches(b);
+        }
+    }
+
+    @Test
+    public void streamingHandlesCrLfAcrossBuffers() throws IOException {
+        for (int offset = 8190; offset < 8194; offset++) {
+            final byte[] b = new byte[20000];
+            java.util.Arrays.fill(b, (byte) 'x');
+            b[offset] = '\r';
+            b[offset + 1] = '\n';
+            b[b.length - 1] = '\r';
+            assertStreamingMatches(b);
+        }
+    }
+
+    private static void assertStreamingMatches(byte[] b) throws IOException {
+        final EightBitTextMessageCodec codec = new EightBitTextMessageCodec();
+        final byte[] expected = codec.toMessage(b);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assert.assertEquals(expected.length,
+                            codec.writeMessage(new ByteArrayInputStream(b),
+                                               out));
+        Assert.assertArrayEquals(expected, out.toByteArray());
+        Assert.assertEquals(expected.length,
+                            codec.messageLength(new ByteArrayInputStream(b)));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EightBitTextOutputStreamTest {
+
+    private static final byte[] MESSAGE =
+        "a\r\nb\r\r\nc\rd\r\n\r\n0123456789012345678901234567890123\r\n\r"
+        .getBytes();
+
+    @Test
+    public void collapsesAcrossWritesOfAnySize() throws IOException {
+        byte[] expected = new EightBitTextMessageCodec().toMessage(MESSAGE);
+        for (int chunk = 1; chunk <= MESSAGE.length; chunk++) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            EightBitTextOutputStream out = new EightBitTextOutputStream(bos);
+            for (int off = 0; off < MESSAGE.length; off += chunk) {
+                out.write(MESSAGE, off, Math.min(chunk, MESSAGE.length - off));
+            }
+            out.close();
+            Assert.assertArrayEquals(expected, bos.toByteArray());
+            Assert.assertEquals(expected.length, out.getCount());
+        }
+    }
+
+    @Test
+    public void countsWithoutTarget() throws IOException {
+        EightBitTextOutputStream out = new EightBitTextOutputStream(null);
+        out.write(MESSAGE);
+        out.finish();
+        Assert.assertEquals(new EightBitTextMessageCodec()
+                            .messageLength(MESSAGE), out.getCount());
+    }
+
+    @Test
+    public void finishWritesHeldBackCr() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        EightBitTextOutputStream out = new EightBitTextOutputStream(bos);
+        out.write('\r');
+        Assert.assertEquals(0, bos.size());
+        out.finish();
+        out.write('\n');
+        Assert.assertArrayEquals(new byte[] { '\r', '\n' }, bos.toByteArray());
+    }
+
+    @Test
+    public void channelAcceptsDirectBuffers() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        EightBitTextChannel ch =
+            new EightBitTextChannel(Channels.newChannel(bos));
+        ByteBuffer direct = ByteBuffer.allocateDirect(MESSAGE.length);
+        direct.put(MESSAGE).flip();
+        Assert.assertEquals(MESSAGE.length, ch.write(direct));
+        ch.close();
+        Assert.assertArrayEquals(new EightBitTextMessageCodec()
+                                 .toMessage(MESSAGE), bos.toByteArray());
+        Assert.assertEquals(bos.size(), ch.getCount());
+    }
+}
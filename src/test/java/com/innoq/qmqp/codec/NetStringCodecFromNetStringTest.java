@@ -17,6 +17,8 @@
 package com.innoq.qmqp.codec;
 
 import com.innoq.qmqp.protocol.QMQPException;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -183,4 +185,45 @@ public class NetStringCodecFromNetStringTest {
                                          '2', ':', 'b', (byte) 128, ','
                                      }));
     }
+
+    @Test
+    public void viewsShareTheInput() {
+        byte[] input = new byte[] { 'x', '1', ':', 'a', ',', '0', ':', ',' };
+        java.nio.ByteBuffer[] views =
+            new NetStringCodec().splitNetStringViews(input, 1, 7);
+        Assert.assertEquals(2, views.length);
+        Assert.assertEquals(1, views[0].remaining());
+        Assert.assertEquals(0, views[1].remaining());
+        Assert.assertTrue(views[0].isReadOnly());
+        input[3] = 'b';
+        Assert.assertEquals('b', views[0].get(0));
+    }
+
+    @Test(expected=QMQPException.class)
+    public void viewRequiresExactLength() {
+        new NetStringCodec().fromNetStringView(new byte[] {
+                '1', ':', 'a', ',', ','
+            }, 0, 5);
+    }
+
+    @Test(expected=EOFException.class)
+    public void readContentDoesntAllocateTheAnnouncedLength()
+        throws Exception {
+        new NetStringCodec()
+            .readContent(new ByteArrayInputStream(new byte[] { 'a', 'b' }),
+                         2147483645);
+    }
+
+    @Test
+    public void readContentGrowsAsContentArrives() throws Exception {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        byte[] input = new byte[content.length + 1];
+        System.arraycopy(content, 0, input, 0, content.length);
+        input[content.length] = ',';
+        Assert.assertArrayEquals(content, new NetStringCodec()
+            .readContent(new ByteArrayInputStream(input), content.length));
+    }
 }
@@ -53,4 +53,29 @@ public class NetStringCodecToNetStringTest {
         Assert.assertArrayEquals(expected,
                                  new NetStringCodec().toNetString(input));
     }
+
+    @Test
+    public void headerContainsLengthAndColon() {
+        Assert.assertArrayEquals(new byte[] { '1', '0', '0', ':' },
+                                 new NetStringCodec().header(100));
+    }
+
+    @Test
+    public void lengthMarkersArePrecise() {
+        NetStringCodec codec = new NetStringCodec();
+        int[] lengths = new int[] { 9, 10, 99, 100, 999, 1000, 1000000 };
+        for (int len : lengths) {
+            byte[] encoded = codec.toNetString(new byte[len]);
+            Assert.assertEquals(codec.encodedLength(len), encoded.length);
+            Assert.assertEquals(len + ":",
+                                new String(encoded, 0,
+                                           String.valueOf(len).length() + 1));
+        }
+    }
+
+    @Test
+    public void encodedLengthAccountsForFraming() {
+        Assert.assertEquals(3, new NetStringCodec().encodedLength(0));
+        Assert.assertEquals(260, new NetStringCodec().encodedLength(255));
+    }
 }
@@ -0,0 +1,124 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.codec;
+
+import java.nio.ByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NetStringDecoderTest {
+
+    @Test
+    public void decodesInOneChunk() throws Exception {
+        NetStringDecoder d = new NetStringDecoder();
+        Assert.assertEquals(NetStringDecoder.Result.COMPLETE,
+                            d.decode(buffer("5:hello,")));
+        Assert.assertArrayEquals("hello".getBytes("ASCII"), d.getData());
+    }
+
+    @Test
+    public void decodesByteByByte() throws Exception {
+        NetStringDecoder d = new NetStringDecoder();
+        byte[] input = "12:hello world!,".getBytes("ASCII");
+        for (int i = 0; i < input.length - 1; i++) {
+            Assert.assertEquals(NetStringDecoder.Result.NEED_MORE,
+                                d.decode(ByteBuffer.wrap(input, i, 1)));
+            Assert.assertNull(d.getData());
+        }
+        Assert.assertEquals(NetStringDecoder.Result.COMPLETE,
+                            d.decode(ByteBuffer.wrap(input,
+                                                     input.length - 1, 1)));
+        Assert.assertEquals("hello world!",
+                            new String(d.getData(), "ASCII"));
+    }
+
+    @Test
+    public void leavesFollowingBytesAlone() throws Exception {
+        NetStringDecoder d = new NetStringDecoder();
+        ByteBuffer b = buffer("0:,1:a,");
+        Assert.assertEquals(NetStringDecoder.Result.COMPLETE, d.decode(b));
+        Assert.assertEquals(0, d.getData().length);
+        Assert.assertEquals(3, b.position());
+        d.reset();
+        Assert.assertEquals(NetStringDecoder.Result.COMPLETE, d.decode(b));
+        Assert.assertEquals("a", new String(d.getData(), "ASCII"));
+    }
+
+    @Test
+    public void reportsMalformedInput() throws Exception {
+        String[] inputs = new String[] { ":a,", "1a", "1:ab", "a:" };
+        for (String s : inputs) {
+            NetStringDecoder d = new NetStringDecoder();
+            Assert.assertEquals(s, NetStringDecoder.Result.MALFORMED,
+                                d.decode(buffer(s)));
+            Assert.assertNotNull(d.getError());
+        }
+    }
+
+    @Test
+    public void enforcesMaximumLength() throws Exception {
+        NetStringDecoder d = new NetStringDecoder(10);
+        Assert.assertEquals(NetStringDecoder.Result.MALFORMED,
+                            d.decode(buffer("11:")));
+    }
+
+    @Test
+    public void decodesLengthSeparately() throws Exception {
+        NetStringDecoder d = new NetStringDecoder();
+        ByteBuffer b = buffer("12:hello world!,");
+        Assert.assertEquals(-1, d.getLength());
+        Assert.assertEquals(NetStringDecoder.Result.NEED_MORE,
+                            d.decodeLength(b));
+        Assert.assertEquals(12, d.getLength());
+        Assert.assertEquals(13, b.remaining());
+        Assert.assertNull(d.getData());
+        Assert.assertEquals(NetStringDecoder.Result.COMPLETE, d.decode(b));
+        Assert.assertEquals("hello world!",
+                            new String(d.getData(), "ASCII"));
+        d.reset();
+        Assert.assertEquals(-1, d.getLength());
+    }
+
+    @Test
+    public void doesntAllocateTheAnnouncedLengthUpFront() throws Exception {
+        NetStringDecoder d = new NetStringDecoder();
+        Assert.assertEquals(NetStringDecoder.Result.NEED_MORE,
+                            d.decode(buffer("2147483645:abc")));
+        Assert.assertEquals(2147483645, d.getLength());
+    }
+
+    @Test
+    public void growsAsContentArrives() throws Exception {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        NetStringDecoder d = new NetStringDecoder();
+        d.decode(buffer("100000:"));
+        for (int off = 0; off < content.length; off += 1000) {
+            Assert.assertEquals(NetStringDecoder.Result.NEED_MORE,
+                                d.decode(ByteBuffer.wrap(content, off, 1000)));
+        }
+        Assert.assertEquals(NetStringDecoder.Result.COMPLETE,
+                            d.decode(buffer(",")));
+        Assert.assertArrayEquals(content, d.getData());
+    }
+
+    private static ByteBuffer buffer(String s) throws Exception {
+        return ByteBuffer.wrap(s.getBytes("ASCII"));
+    }
+}
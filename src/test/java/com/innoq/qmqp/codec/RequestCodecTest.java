@@ -17,7 +17,25 @@
 package com.innoq.qmqp.codec;
 
 import com.innoq.qmqp.protocol.QMQPException;
+import com.innoq.qmqp.protocol.FileMessageSource;
+import com.innoq.qmqp.protocol.LargeEnvelopeRequest;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.MessageSource;
 import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.StreamingRequest;
+import com.innoq.qmqp.util.BufferPool;
+import com.innoq.qmqp.util.BufferPools;
+import com.innoq.qmqp.util.SizeClassBufferPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -77,4 +95,266 @@ public class RequestCodecTest {
                                  actual.getRecipients());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void lazyRequestRefersToTheInput() throws IOException {
+        Request r = new Request("Hi Bob,\n".getBytes("ASCII"),
+                                "alice@example.org", "bob@example.org",
+                                "carol@example.org");
+        byte[] encoded = new RequestCodec().toNetwork(r);
+        LazyRequest lazy = new RequestCodec().lazyFromNetwork(encoded);
+        Assert.assertEquals("alice@example.org", lazy.getSender());
+        Assert.assertEquals(2, lazy.getRecipientCount());
+        Assert.assertArrayEquals(r.getRecipients(), lazy.getRecipients());
+        Assert.assertArrayEquals(r.getMessage(), lazy.getMessage());
+        // "72:8:" precedes the message
+        encoded[5] = 'h';
+        Assert.assertEquals('h', lazy.getMessageBuffer().get(0));
+    }
+
+    @Test
+    public void lazyRequestEncodesLikeReceived() throws IOException {
+        Request r = new Request("Hi Bob,\r\nbye\r\n".getBytes("ASCII"),
+                                "alice@example.org", "bob@example.org",
+                                "carol@example.org");
+        byte[] encoded = new RequestCodec().toNetwork(r);
+        LazyRequest lazy = new RequestCodec().lazyFromNetwork(encoded);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (ByteBuffer b : new RequestCodec().toBuffers(lazy)) {
+            Channels.newChannel(bos).write(b);
+        }
+        Assert.assertArrayEquals(encoded, bos.toByteArray());
+    }
+
+    @Test(expected=QMQPException.class)
+    public void lazyDecoderDoesntAcceptNonsense() {
+        new RequestCodec().lazyFromNetwork(new byte[] { '1', ':', 'a', ',' });
+    }
+
+    @Test
+    public void buffersEncodeLikeRequest() throws IOException {
+        Request r = new Request("Hi Bob,\r\n\r\nbye\r\n".getBytes("ASCII"),
+                                "alice@example.org", "bob@example.org",
+                                "carol@example.org");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (ByteBuffer b : new RequestCodec().toBuffers(r)) {
+            Channels.newChannel(bos).write(b);
+        }
+        Assert.assertArrayEquals(new RequestCodec().toNetwork(r),
+                                 bos.toByteArray());
+    }
+
+    @Test
+    public void pooledBuffersEncodeLikeRequest() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 70; i++) {
+            sb.append("Hi Bob,\r\n");
+        }
+        Request r = new Request(sb.toString().getBytes("ASCII"),
+                                "alice@example.org", "bob@example.org",
+                                "carol@example.org");
+        // the first pool fits the whole request, the second doesn't
+        BufferPool[] pools = {
+            new SizeClassBufferPool(true, 1024, 1024),
+            new SizeClassBufferPool(true, 512, 1024)
+        };
+        int[] expectedBuffers = { 1, 3 };
+        for (int i = 0; i < pools.length; i++) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ByteBuffer[] buffers = new RequestCodec().toBuffers(r, pools[i]);
+            Assert.assertEquals(expectedBuffers[i], buffers.length);
+            for (ByteBuffer b : buffers) {
+                Channels.newChannel(bos).write(b);
+            }
+            Assert.assertArrayEquals(new RequestCodec().toNetwork(r),
+                                     bos.toByteArray());
+        }
+    }
+
+    @Test
+    public void sharedMessagesEncodeLikeCopiedOnes() throws IOException {
+        byte[] message = "Hi Bob,\r\n\r\nbye\r\n".getBytes("ASCII");
+        ByteBuffer direct = ByteBuffer.allocateDirect(message.length + 2);
+        direct.put((byte) 'x').put(message).put((byte) 'x').flip();
+        direct.position(1).limit(message.length + 1);
+        Request copied = new Request(message, "alice@example.org",
+                                     "bob@example.org");
+        Request shared = Request.withSharedMessage(direct,
+                                                   "alice@example.org",
+                                                   "bob@example.org");
+        Assert.assertArrayEquals(new RequestCodec().toNetwork(copied),
+                                 new RequestCodec().toNetwork(shared));
+    }
+
+    @Test
+    public void templatesEncodeLikeRequest() throws IOException {
+        byte[] message = "Hi Bob,\r\n\r\nbye\r\n".getBytes("ASCII");
+        RequestCodec codec = new RequestCodec();
+        EnvelopeTemplate t = codec.toTemplate(message, "alice@example.org");
+        Assert.assertEquals(13, t.getMessageLength());
+        for (int i = 0; i < 2; i++) {
+            String[] recipients = { "bob" + i + "@example.org",
+                                    "carol@example.org" };
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            for (ByteBuffer b : codec.toBuffers(t, recipients,
+                                                BufferPools.getDefault())) {
+                Channels.newChannel(bos).write(b);
+            }
+            Request r = new Request(message, "alice@example.org",
+                                    recipients);
+            Assert.assertArrayEquals(codec.toNetwork(r), bos.toByteArray());
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void templateRecipientsMustBeAscii() {
+        RequestCodec codec = new RequestCodec();
+        codec.toBuffers(codec.toTemplate(new byte[0], "alice@example.org"),
+                        new String[] { "\u00fe@example.org" },
+                        BufferPools.UNPOOLED);
+    }
+
+    @Test
+    public void rejectedRecipientsDontLeakPooledBuffers() {
+        RequestCodec codec = new RequestCodec();
+        final List<ByteBuffer> outstanding = new ArrayList<ByteBuffer>();
+        BufferPool pool = new BufferPool() {
+                public ByteBuffer acquire(int capacity) {
+                    ByteBuffer b = ByteBuffer.allocate(capacity);
+                    outstanding.add(b);
+                    return b;
+                }
+                public void release(ByteBuffer buffer) {
+                    Assert.assertTrue(outstanding.remove(buffer));
+                }
+                public int getMaxCapacity() {
+                    return 1024;
+                }
+            };
+        try {
+            codec.toBuffers(codec.toTemplate(new byte[0],
+                                             "alice@example.org"),
+                            new String[] { "bob@example.org",
+                                           "\u00fe@example.org" },
+                            pool);
+            Assert.fail("expected an exception");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        Assert.assertTrue(outstanding.isEmpty());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void templateRequiresRecipients() {
+        RequestCodec codec = new RequestCodec();
+        codec.toBuffers(codec.toTemplate(new byte[0], "alice@example.org"),
+                        new String[0], BufferPools.UNPOOLED);
+    }
+
+    @Test
+    public void largeEnvelopeRequestEncodesLikeRequest() throws IOException {
+        byte[] message = "Hi all,\r\n\r\nbye\r\n".getBytes("ASCII");
+        String[] recipients = new String[1000];
+        List<byte[]> addresses = new ArrayList<byte[]>();
+        for (int i = 0; i < recipients.length; i++) {
+            recipients[i] = "member" + i + "@example.org";
+            addresses.add(recipients[i].getBytes("ASCII"));
+        }
+        RequestCodec codec = new RequestCodec();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        codec.toNetwork(new LargeEnvelopeRequest(ByteBuffer.wrap(message),
+                                                 "list@example.org",
+                                                 addresses), bos);
+        Request r = new Request(message, "list@example.org", recipients);
+        Assert.assertArrayEquals(codec.toNetwork(r), bos.toByteArray());
+    }
+
+    @Test(expected=QMQPException.class)
+    public void largeEnvelopeRecipientsMustNotChange() throws IOException {
+        final List<byte[]> addresses = new ArrayList<byte[]>();
+        addresses.add("bob@example.org".getBytes("ASCII"));
+        LargeEnvelopeRequest r =
+            new LargeEnvelopeRequest(ByteBuffer.allocate(0),
+                                     "alice@example.org", addresses);
+        RequestCodec codec = new RequestCodec();
+        long length = codec.envelopeLength(r);
+        addresses.add("carol@example.org".getBytes("ASCII"));
+        codec.toNetwork(r, length, new ByteArrayOutputStream());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void largeEnvelopeRecipientsMustBeAscii() {
+        List<byte[]> addresses = new ArrayList<byte[]>();
+        addresses.add(new byte[] { 'b', (byte) 0xfe });
+        new RequestCodec()
+            .envelopeLength(new LargeEnvelopeRequest(ByteBuffer.allocate(0),
+                                                     "alice@example.org",
+                                                     addresses));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void largeEnvelopeRequiresRecipients() {
+        new RequestCodec()
+            .envelopeLength(new LargeEnvelopeRequest(ByteBuffer.allocate(0),
+                                                     "alice@example.org",
+                                                     new ArrayList<byte[]>()));
+    }
+
+    @Test
+    public void streamingRequestEncodesLikeRequest() throws IOException {
+        final byte[] body = ("Subject: Hi\r\n\r\nHi Bob,\r\n"
+                             + "so happy to meet you again.\r\n")
+            .getBytes("ASCII");
+        final String sender = "alice@example.org";
+        final String[] recipients = { "bob@example.org", "carol@example.org" };
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new RequestCodec().toNetwork(new StreamingRequest(new MessageSource() {
+                public InputStream openStream() {
+                    return new ByteArrayInputStream(body);
+                }
+            }, sender, recipients), out);
+        Assert.assertArrayEquals(new RequestCodec()
+                                 .toNetwork(new Request(body, sender,
+                                                        recipients)),
+                                 out.toByteArray());
+    }
+
+    @Test(expected=QMQPException.class)
+    public void streamingRequestDetectsModifiedMessage() throws IOException {
+        final int[] calls = new int[1];
+        new RequestCodec().toNetwork(new StreamingRequest(new MessageSource() {
+                public InputStream openStream() {
+                    return new ByteArrayInputStream(new byte[calls[0]++]);
+                }
+            }, "alice@example.org", "bob@example.org"),
+            new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void fileRequestsAreWrittenToChannels() throws IOException {
+        assertChannelEncoding("Subject: Hi\n\nsent via transferTo\n");
+        assertChannelEncoding("Subject: Hi\r\n\r\nsent via a stream\r\n");
+    }
+
+    private static void assertChannelEncoding(String body) throws IOException {
+        final File f = File.createTempFile("qmqp", ".eml");
+        try {
+            final FileOutputStream fos = new FileOutputStream(f);
+            fos.write(body.getBytes("ASCII"));
+            fos.close();
+            final StreamingRequest r =
+                new StreamingRequest(new FileMessageSource(f),
+                                     "alice@example.org", "bob@example.org");
+            final RequestCodec codec = new RequestCodec();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.toNetwork(r, codec.messageLength(r),
+                            Channels.newChannel(out));
+            final Request expected = new Request(body.getBytes("ASCII"),
+                                                 "alice@example.org",
+                                                 "bob@example.org");
+            Assert.assertArrayEquals(codec.toNetwork(expected),
+                                     out.toByteArray());
+        } finally {
+            f.delete();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.codec;
+
+import com.innoq.qmqp.protocol.Request;
+import java.nio.ByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestDecoderTest {
+
+    @Test
+    public void decodesWhatTheCodecEncodes() throws Exception {
+        Request expected = new Request("Hi Bob,\n".getBytes("ASCII"),
+                                       "alice@example.org",
+                                       "bob@example.org", "carol@example.org");
+        byte[] encoded = new RequestCodec().toNetwork(expected);
+        for (int chunk = 1; chunk <= encoded.length; chunk++) {
+            RequestDecoder d = new RequestDecoder();
+            NetStringDecoder.Result r = NetStringDecoder.Result.NEED_MORE;
+            for (int off = 0; off < encoded.length; off += chunk) {
+                Assert.assertEquals(NetStringDecoder.Result.NEED_MORE, r);
+                r = d.decode(ByteBuffer.wrap(encoded, off,
+                                             Math.min(chunk,
+                                                      encoded.length - off)));
+            }
+            Assert.assertEquals(NetStringDecoder.Result.COMPLETE, r);
+            Request actual = d.getRequest();
+            Assert.assertArrayEquals(expected.getMessage(),
+                                     actual.getMessage());
+            Assert.assertEquals(expected.getSender(), actual.getSender());
+            Assert.assertArrayEquals(expected.getRecipients(),
+                                     actual.getRecipients());
+        }
+    }
+
+    @Test
+    public void requestSharesTheDecodedMessage() throws Exception {
+        RequestDecoder d = new RequestDecoder();
+        d.decode(buffer("17:2:hi,3:a@b,3:c@d,,"));
+        Request r = d.getRequest();
+        d.getMessage()[0] = 'H';
+        Assert.assertEquals('H', r.getMessageBuffer().get(0));
+    }
+
+    @Test
+    public void exposesPartsAsTheyArrive() throws Exception {
+        RequestDecoder d = new RequestDecoder();
+        Assert.assertEquals(NetStringDecoder.Result.NEED_MORE,
+                            d.decode(buffer("17:2:hi,3:a@b,")));
+        Assert.assertEquals("hi", new String(d.getMessage(), "ASCII"));
+        Assert.assertEquals("a@b", d.getSender());
+        Assert.assertTrue(d.getRecipients().isEmpty());
+        Assert.assertEquals(NetStringDecoder.Result.NEED_MORE,
+                            d.decode(buffer("3:c@d,")));
+        Assert.assertEquals(1, d.getRecipients().size());
+        Assert.assertNull(d.getRequest());
+        Assert.assertEquals(NetStringDecoder.Result.COMPLETE,
+                            d.decode(buffer(",")));
+        Assert.assertNotNull(d.getRequest());
+    }
+
+    @Test
+    public void reportsMalformedInput() throws Exception {
+        String[] inputs = new String[] {
+            "5:1:a,,", // too few parts
+            "6:1:a,2:b,", // nested netstring exceeds outer one
+            "17:2:hi,3:a@b,3:c@d,x",
+        };
+        for (String s : inputs) {
+            RequestDecoder d = new RequestDecoder();
+            Assert.assertEquals(s, NetStringDecoder.Result.MALFORMED,
+                                d.decode(buffer(s)));
+            Assert.assertNotNull(d.getError());
+        }
+    }
+
+    @Test
+    public void rejectsNestedLengthBeyondOuterNetstring() throws Exception {
+        RequestDecoder d = new RequestDecoder(100);
+        Assert.assertEquals(NetStringDecoder.Result.MALFORMED,
+                            d.decode(buffer("50:1500000000:xx")));
+        Assert.assertNotNull(d.getError());
+        // same when the input arrives byte by byte
+        d = new RequestDecoder(100);
+        ByteBuffer in = buffer("50:1500000000:xx");
+        while (in.hasRemaining()
+               && d.result() == NetStringDecoder.Result.NEED_MORE) {
+            ByteBuffer one = ByteBuffer.wrap(new byte[] { in.get() });
+            d.decode(one);
+        }
+        Assert.assertEquals(NetStringDecoder.Result.MALFORMED, d.result());
+    }
+
+    private static ByteBuffer buffer(String s) throws Exception {
+        return ByteBuffer.wrap(s.getBytes("ASCII"));
+    }
+}
@@ -55,6 +55,64 @@ public class ResponseCodecTest {
             });
     }
 
+    @Test
+    public void decodesConcurrently() throws Exception {
+        final ResponseCodec codec = new ResponseCodec();
+        final byte[] utf8 = codec.toNetwork(new Response(ReturnCode.TEMP_FAIL,
+                                                         "\u00e4\u00f6\u00fc"
+                                                         + " try again"));
+        final byte[] ascii = codec.toNetwork(new Response(ReturnCode.OK,
+                                                          "ok"));
+        final java.util.concurrent.atomic.AtomicInteger failures =
+            new java.util.concurrent.atomic.AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                    public void run() {
+                        for (int j = 0; j < 10000; j++) {
+                            if (!"\u00e4\u00f6\u00fc try again"
+                                .equals(codec.fromNetwork(utf8).getDetails())
+                                || !"ok".equals(codec.fromNetwork(ascii)
+                                                .getDetails())) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    }
+                };
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void readsUpToTheComma() throws java.io.IOException {
+        java.io.InputStream in =
+            new java.io.ByteArrayInputStream("3:Kok,garbage".getBytes("ASCII"));
+        Response r = new ResponseCodec().readFrom(in, 100);
+        Assert.assertEquals(ReturnCode.OK, r.getReturnCode());
+        Assert.assertEquals("ok", r.getDetails());
+        Assert.assertEquals('g', in.read());
+    }
+
+    @Test(expected=QMQPException.class)
+    public void readFailsOnTooLongResponse() throws java.io.IOException {
+        new ResponseCodec()
+            .readFrom(new java.io.ByteArrayInputStream("300000000000:K"
+                                                       .getBytes("ASCII")),
+                      100);
+    }
+
+    @Test(expected=java.io.EOFException.class)
+    public void readFailsOnIncompleteResponse() throws java.io.IOException {
+        new ResponseCodec()
+            .readFrom(new java.io.ByteArrayInputStream("3:Ko"
+                                                       .getBytes("ASCII")),
+                      100);
+    }
+
     @Test
     public void encodesOk() {
         byte[] expected = new byte[] {
@@ -16,6 +16,8 @@
 
 package com.innoq.qmqp.protocol;
 
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -31,4 +33,52 @@ public class RequestTest {
         new Request(new byte[0], "a@example.org", "bar@example.org");
     }
 
+    @Test
+    public void constructorCopiesTheMessage() {
+        byte[] message = new byte[] { 'a' };
+        Request r = new Request(message, "a@example.org", "b@example.org");
+        message[0] = 'b';
+        Assert.assertEquals('a', r.getMessage()[0]);
+        r.getMessage()[0] = 'c';
+        Assert.assertEquals('a', r.getMessageBuffer().get(0));
+    }
+
+    @Test
+    public void sharedMessagesAreNotCopied() {
+        byte[] message = new byte[] { 'a', 'b', 'c' };
+        Request r = Request.withSharedMessage(message, "a@example.org",
+                                              "b@example.org");
+        Request other = r.forRecipients("c@example.org");
+        message[0] = 'x';
+        Assert.assertEquals('x', r.getMessageBuffer().get(0));
+        Assert.assertEquals('x', other.getMessageBuffer().get(0));
+        Assert.assertEquals("a@example.org", other.getSender());
+        Assert.assertEquals(Collections.singletonList("c@example.org"),
+                            other.getRecipientList());
+        Assert.assertTrue(r.getMessageBuffer().isReadOnly());
+    }
+
+    @Test
+    public void sharedBufferIsUsedFromItsPosition() {
+        ByteBuffer b = ByteBuffer.wrap(new byte[] { 'a', 'b', 'c' });
+        b.position(1);
+        Request r = Request.withSharedMessage(b, "a@example.org",
+                                              "b@example.org");
+        Assert.assertEquals(1, b.position());
+        Assert.assertEquals(2, r.getMessageLength());
+        Assert.assertArrayEquals(new byte[] { 'b', 'c' }, r.getMessage());
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void recipientListIsUnmodifiable() {
+        new Request(new byte[0], "a@example.org", "b@example.org")
+            .getRecipientList().add("c@example.org");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void sharedMessageMustNotBeNull() {
+        Request.withSharedMessage((ByteBuffer) null, "a@example.org",
+                                  "b@example.org");
+    }
+
 }
\ No newline at end of file
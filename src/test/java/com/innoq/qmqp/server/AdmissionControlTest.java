@@ -0,0 +1,72 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdmissionControlTest {
+
+    @Test
+    public void limitsConnections() {
+        AdmissionControl a = new AdmissionControl(2, 0, 0);
+        Assert.assertTrue(a.tryOpen());
+        Assert.assertTrue(a.tryOpen());
+        Assert.assertFalse(a.tryOpen());
+        Assert.assertEquals(2, a.getConnections());
+        a.closed();
+        Assert.assertTrue(a.tryOpen());
+        Assert.assertEquals(1, a.getConnectionRejections());
+    }
+
+    @Test
+    public void limitsInFlightBytes() {
+        AdmissionControl a = new AdmissionControl(0, 100, 0);
+        Assert.assertTrue(a.tryReserve(60));
+        Assert.assertFalse(a.tryReserve(41));
+        Assert.assertTrue(a.tryReserve(40));
+        Assert.assertEquals(100, a.getInFlightBytes());
+        a.release(60);
+        Assert.assertEquals(40, a.getInFlightBytes());
+        Assert.assertEquals(1, a.getInFlightBytesRejections());
+    }
+
+    @Test
+    public void limitsQueuedRequests() {
+        AdmissionControl a = new AdmissionControl(0, 0, 1);
+        Assert.assertTrue(a.tryEnqueue());
+        Assert.assertFalse(a.tryEnqueue());
+        a.rejectEnqueued();
+        Assert.assertEquals(0, a.getQueuedRequests());
+        Assert.assertTrue(a.tryEnqueue());
+        a.dequeued();
+        Assert.assertEquals(2, a.getQueueRejections());
+        Assert.assertEquals(2, a.getRejections());
+    }
+
+    @Test
+    public void nonPositiveLimitsDontLimitAnything() {
+        AdmissionControl a = new AdmissionControl(0, -1, 0);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(a.tryOpen());
+            Assert.assertTrue(a.tryReserve(Integer.MAX_VALUE));
+            Assert.assertTrue(a.tryEnqueue());
+        }
+        Assert.assertEquals(1000, a.getConnections());
+        Assert.assertEquals(0, a.getRejections());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.client.QMQPClient;
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.util.IOUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournalSpoolTest {
+
+    private final RequestCodec codec = new RequestCodec();
+    private File journal;
+
+    @Before
+    public void createJournal() throws IOException {
+        journal = File.createTempFile("qmqp", ".journal");
+    }
+
+    @After
+    public void deleteJournal() {
+        journal.delete();
+    }
+
+    @Test
+    public void appendsRequestsInNetworkRepresentation() throws IOException {
+        JournalSpool spool = new JournalSpool(journal);
+        try {
+            Response res = spool.handle(lazy(request(1)));
+            Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+            spool.handle(lazy(request(2)));
+            Assert.assertEquals(2, spool.getRequestCount());
+            Assert.assertEquals(2, spool.getSyncCount());
+        } finally {
+            spool.close();
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(codec.toNetwork(request(1)));
+        expected.write(codec.toNetwork(request(2)));
+        Assert.assertArrayEquals(expected.toByteArray(), content());
+    }
+
+    @Test
+    public void commitsConcurrentRequests() throws Exception {
+        final JournalSpool spool = new JournalSpool(journal);
+        ExecutorService e = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Response>> responses =
+                new ArrayList<Future<Response>>();
+            for (int i = 0; i < 400; i++) {
+                final int n = i;
+                responses.add(e.submit(new Callable<Response>() {
+                        public Response call() {
+                            return spool.handle(lazy(request(n)));
+                        }
+                    }));
+            }
+            for (Future<Response> f : responses) {
+                Assert.assertEquals(ReturnCode.OK, f.get().getReturnCode());
+            }
+            Assert.assertEquals(400, spool.getRequestCount());
+            Assert.assertTrue(spool.getSyncCount() <= 400);
+        } finally {
+            e.shutdown();
+            spool.close();
+        }
+        Assert.assertEquals(400, records(content()));
+    }
+
+    @Test
+    public void cutsOffIncompleteRecord() throws IOException {
+        FileOutputStream out = new FileOutputStream(journal);
+        out.write(codec.toNetwork(request(1)));
+        out.write("100:5:hello,".getBytes("ASCII"));
+        out.close();
+        JournalSpool spool = new JournalSpool(journal);
+        try {
+            spool.handle(lazy(request(2)));
+        } finally {
+            spool.close();
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(codec.toNetwork(request(1)));
+        expected.write(codec.toNetwork(request(2)));
+        Assert.assertArrayEquals(expected.toByteArray(), content());
+    }
+
+    @Test
+    public void closedSpoolCausesTemporaryFailure() throws IOException {
+        JournalSpool spool = new JournalSpool(journal);
+        spool.close();
+        Assert.assertEquals(ReturnCode.TEMP_FAIL,
+                            spool.handle(lazy(request(1))).getReturnCode());
+    }
+
+    @Test
+    public void spoolsRequestsReceivedByServer() throws IOException {
+        JournalSpool spool = new JournalSpool(journal);
+        QMQPServer server = new QMQPServer(0, spool);
+        server.start();
+        try {
+            Response res = new QMQPClient(server.getPort()).send(request(1));
+            Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+        } finally {
+            server.close();
+            spool.close();
+        }
+        Assert.assertArrayEquals(codec.toNetwork(request(1)), content());
+    }
+
+    private static Request request(int n) {
+        return new Request(("Message " + n + "\r\n").getBytes(),
+                           "alice@example.org", n + "@example.org");
+    }
+
+    private LazyRequest lazy(Request r) {
+        return codec.lazyFromNetwork(codec.toNetwork(r));
+    }
+
+    private byte[] content() throws IOException {
+        InputStream in = new FileInputStream(journal);
+        try {
+            return IOUtil.readFully(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private int records(byte[] content) {
+        int count = 0;
+        for (int off = 0; off < content.length; count++) {
+            int colon = off;
+            while (content[colon] != ':') {
+                colon++;
+            }
+            off = colon + 2
+                + Integer.parseInt(new String(content, off, colon - off));
+        }
+        return count;
+    }
+}
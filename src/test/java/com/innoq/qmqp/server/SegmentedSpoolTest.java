@@ -0,0 +1,306 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedSpoolTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    private final RequestCodec codec = new RequestCodec();
+    private File dir;
+
+    @Before
+    public void createDirectory() throws IOException {
+        dir = File.createTempFile("qmqp", ".spool");
+        dir.delete();
+    }
+
+    @After
+    public void deleteDirectory() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void spoolsAndReadsRequests() throws IOException {
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            for (int i = 0; i < 3; i++) {
+                Response res = spool.handle(lazy(request(i)));
+                Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+                Assert.assertEquals("spooled " + i, res.getDetails());
+            }
+            Assert.assertEquals(3, spool.getEntryCount());
+            LazyRequest r = spool.read(1);
+            Assert.assertEquals("1@example.org", r.getRecipients()[0]);
+            // as sent over the wire
+            Assert.assertArrayEquals("Message 1\n".getBytes(),
+                                     r.getMessage());
+            Assert.assertEquals(SegmentedSpool.Status.PENDING,
+                                spool.getStatus(1));
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void tracksStatuses() throws IOException {
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            for (int i = 0; i < 4; i++) {
+                spool.handle(lazy(request(i)));
+            }
+            spool.setStatus(0, SegmentedSpool.Status.FORWARDED);
+            spool.setStatus(1, SegmentedSpool.Status.FAILED);
+            Assert.assertEquals(2, spool.nextPending(0));
+            Assert.assertEquals(3, spool.nextPending(3));
+            spool.setStatus(3, SegmentedSpool.Status.FORWARDED);
+            Assert.assertEquals(-1, spool.nextPending(3));
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void rollsOverToNewSegments() throws IOException {
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            for (int i = 0; i < 200; i++) {
+                spool.handle(lazy(request(i)));
+            }
+            Assert.assertTrue(dir.list().length > 3);
+            for (int i = 0; i < 200; i++) {
+                Assert.assertEquals(i + "@example.org",
+                                    spool.read(i).getRecipients()[0]);
+            }
+        } finally {
+            spool.close();
+        }
+        spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            Assert.assertEquals(200, spool.getEntryCount());
+            Assert.assertEquals(0, spool.getScannedBytes());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void recoversFromCheckpointScanningOnlyTheTail()
+        throws IOException {
+        SegmentedSpool crashed = new SegmentedSpool(dir, SEGMENT_SIZE);
+        for (int i = 0; i < 100; i++) {
+            crashed.handle(lazy(request(i)));
+        }
+        crashed.setStatus(5, SegmentedSpool.Status.FORWARDED);
+        crashed.setStatus(99, SegmentedSpool.Status.FAILED);
+        crashed.checkpoint();
+        int tail = 0;
+        for (int i = 100; i < 103; i++) {
+            crashed.handle(lazy(request(i)));
+            tail += codec.toNetwork(request(i)).length;
+        }
+        // changed after the checkpoint, lost in the crash
+        crashed.setStatus(6, SegmentedSpool.Status.FORWARDED);
+
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            Assert.assertEquals(103, spool.getEntryCount());
+            Assert.assertEquals(tail, spool.getScannedBytes());
+            Assert.assertEquals(SegmentedSpool.Status.FORWARDED,
+                                spool.getStatus(5));
+            Assert.assertEquals(SegmentedSpool.Status.PENDING,
+                                spool.getStatus(6));
+            Assert.assertEquals(SegmentedSpool.Status.FAILED,
+                                spool.getStatus(99));
+            Assert.assertEquals("102@example.org",
+                                spool.read(102).getRecipients()[0]);
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void scansAllSegmentsWithoutUsableIndex() throws IOException {
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        for (int i = 0; i < 100; i++) {
+            spool.handle(lazy(request(i)));
+        }
+        spool.setStatus(5, SegmentedSpool.Status.FORWARDED);
+        spool.close();
+        RandomAccessFile index = new RandomAccessFile(new File(dir, "index"),
+                                                      "rw");
+        try {
+            index.seek(40);
+            index.write(index.read() ^ 1);
+        } finally {
+            index.close();
+        }
+        spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            Assert.assertEquals(100, spool.getEntryCount());
+            Assert.assertEquals(SegmentedSpool.Status.PENDING,
+                                spool.getStatus(5));
+            Assert.assertEquals("99@example.org",
+                                spool.read(99).getRecipients()[0]);
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void cutsOffIncompleteRequest() throws IOException {
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        spool.handle(lazy(request(0)));
+        spool.close();
+        int end = codec.toNetwork(request(0)).length;
+        RandomAccessFile segment =
+            new RandomAccessFile(new File(dir, "segment-00000000"), "rw");
+        try {
+            segment.seek(end);
+            segment.write("100:5:hello,3:a@b,".getBytes("ASCII"));
+        } finally {
+            segment.close();
+        }
+        spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            Assert.assertEquals(1, spool.getEntryCount());
+            spool.handle(lazy(request(1)));
+        } finally {
+            spool.close();
+        }
+        new File(dir, "index").delete();
+        spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            Assert.assertEquals(2, spool.getEntryCount());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void rejectsRequestsBiggerThanASegment() throws IOException {
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        try {
+            Request big = new Request(new byte[SEGMENT_SIZE],
+                                      "alice@example.org", "bob@example.org");
+            Assert.assertEquals(ReturnCode.PERM_FAIL,
+                                spool.handle(lazy(big)).getReturnCode());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void closedSpoolCausesTemporaryFailure() throws IOException {
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE);
+        spool.close();
+        Assert.assertEquals(ReturnCode.TEMP_FAIL,
+                            spool.handle(lazy(request(0))).getReturnCode());
+    }
+
+    @Test
+    public void publishesRequestsOnlyOnceTheyAreDurable() throws Exception {
+        final CountDownLatch forcing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE) {
+                void force(MappedByteBuffer segment) throws IOException {
+                    forcing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        throw new IOException("interrupted");
+                    }
+                    super.force(segment);
+                }
+            };
+        try {
+            final Response[] res = new Response[1];
+            Thread writer = new Thread() {
+                    public void run() {
+                        res[0] = spool.handle(lazy(request(0)));
+                    }
+                };
+            writer.start();
+            Assert.assertTrue(forcing.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, spool.getEntryCount());
+            Assert.assertEquals(-1, spool.nextPending(0));
+            release.countDown();
+            writer.join();
+            Assert.assertEquals(ReturnCode.OK, res[0].getReturnCode());
+            Assert.assertEquals(1, spool.getEntryCount());
+            Assert.assertEquals(0, spool.nextPending(0));
+        } finally {
+            release.countDown();
+            spool.close();
+        }
+    }
+
+    @Test
+    public void doesntPublishRequestsWhoseSyncFailed() throws IOException {
+        SegmentedSpool spool = new SegmentedSpool(dir, SEGMENT_SIZE) {
+                void force(MappedByteBuffer segment) throws IOException {
+                    throw new IOException("disk is gone");
+                }
+            };
+        try {
+            Assert.assertEquals(ReturnCode.TEMP_FAIL,
+                                spool.handle(lazy(request(0)))
+                                .getReturnCode());
+            Assert.assertEquals(0, spool.getEntryCount());
+            Assert.assertEquals(-1, spool.nextPending(0));
+            try {
+                spool.read(0);
+                Assert.fail("expected an exception");
+            } catch (IllegalArgumentException ex) {
+                // not spooled
+            }
+        } finally {
+            spool.close();
+        }
+    }
+
+    private static Request request(int n) {
+        return new Request(("Message " + n + "\r\n").getBytes(),
+                           "alice@example.org", n + "@example.org");
+    }
+
+    private LazyRequest lazy(Request r) {
+        return codec.lazyFromNetwork(codec.toNetwork(r));
+    }
+}
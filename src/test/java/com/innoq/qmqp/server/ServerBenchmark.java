@@ -0,0 +1,137 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.codec.ResponseCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.util.VirtualThreads;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares QMQPServer and VirtualThreadQMQPServer under many
+ * concurrent slow clients.
+ *
+ * <p>Expects the mode - "nio" or "virtual" - on the command line,
+ * optionally followed by the number of clients, the milliseconds each
+ * client pauses in the middle of its request and the milliseconds the
+ * handler blocks for each request.  Every client sends one request in
+ * two halves and waits for the response, the clients run on virtual
+ * threads, so Java 21 or later is required.</p>
+ *
+ * <p>Prints the time it took to answer all requests and the peak
+ * number of platform threads.</p>
+ */
+public class ServerBenchmark {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("mode (nio or virtual) is required");
+            System.exit(2);
+        }
+        final int clients = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        final long pause = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        final long work = args.length > 3 ? Long.parseLong(args[3]) : 5;
+
+        RequestHandler handler = new RequestHandler() {
+                public Response handle(LazyRequest r) {
+                    sleep(work);
+                    return new Response(ReturnCode.OK, "queued");
+                }
+            };
+        final int port;
+        final QMQPServer nio;
+        final VirtualThreadQMQPServer virtual;
+        if ("nio".equals(args[0])) {
+            nio = new QMQPServer(0, handler);
+            nio.start();
+            virtual = null;
+            port = nio.getPort();
+        } else {
+            virtual = new VirtualThreadQMQPServer(0, handler);
+            virtual.start();
+            nio = null;
+            port = virtual.getPort();
+        }
+
+        final byte[] request = new RequestCodec()
+            .toNetwork(new Request(new byte[2000], "alice@example.org",
+                                   "bob@example.org"));
+        final int half = request.length / 2;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        ExecutorService e =
+            VirtualThreads.newVirtualThreadPerTaskExecutor();
+        long start = System.nanoTime();
+        List<Future<Response>> responses = new ArrayList<Future<Response>>();
+        for (int i = 0; i < clients; i++) {
+            responses.add(e.submit(new Callable<Response>() {
+                    public Response call() throws Exception {
+                        Socket s = new Socket("localhost", port);
+                        try {
+                            OutputStream out = s.getOutputStream();
+                            out.write(request, 0, half);
+                            out.flush();
+                            sleep(pause);
+                            out.write(request, half, request.length - half);
+                            out.flush();
+                            InputStream in = s.getInputStream();
+                            return new ResponseCodec().readFrom(in, 1000);
+                        } finally {
+                            s.close();
+                        }
+                    }
+                }));
+        }
+        int ok = 0;
+        for (Future<Response> f : responses) {
+            if (f.get(5, TimeUnit.MINUTES).getReturnCode() == ReturnCode.OK) {
+                ok++;
+            }
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println(args[0] + ": " + ok + "/" + clients + " OK in "
+                           + millis + " ms, peak platform threads "
+                           + threads.getPeakThreadCount());
+        e.shutdown();
+        if (nio != null) {
+            nio.close();
+        } else {
+            virtual.close();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
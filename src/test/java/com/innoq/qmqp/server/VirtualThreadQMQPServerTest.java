@@ -0,0 +1,287 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.server;
+
+import com.innoq.qmqp.client.QMQPClient;
+import com.innoq.qmqp.codec.ResponseCodec;
+import com.innoq.qmqp.protocol.LazyRequest;
+import com.innoq.qmqp.protocol.Request;
+import com.innoq.qmqp.protocol.Response;
+import com.innoq.qmqp.protocol.ReturnCode;
+import com.innoq.qmqp.util.VirtualThreads;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class VirtualThreadQMQPServerTest {
+
+    private static final String SENDER = "alice@example.org";
+
+    private VirtualThreadQMQPServer server;
+
+    @After
+    public void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void answersRequestsOnVirtualThreads() {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+        server = new VirtualThreadQMQPServer(0, new RequestHandler() {
+                public Response handle(LazyRequest r) {
+                    return new Response(ReturnCode.OK, r.getSender() + " "
+                                        + r.getRecipients()[1] + " "
+                                        + r.getMessageLength());
+                }
+            });
+        server.start();
+        Response res = new QMQPClient(server.getPort())
+            .send(new Request("Hi\r\n".getBytes(), SENDER, "bob@example.org",
+                              "carol@example.org"));
+        Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+        Assert.assertEquals(SENDER + " carol@example.org 3",
+                            res.getDetails());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void requiresVirtualThreadsByDefault() {
+        Assume.assumeTrue(!VirtualThreads.isSupported());
+        new VirtualThreadQMQPServer(0, okHandler());
+    }
+
+    @Test
+    public void handlesConcurrentConnections() throws Exception {
+        startServer(new RequestHandler() {
+                public Response handle(LazyRequest r) {
+                    return new Response(ReturnCode.OK, r.getRecipients()[0]);
+                }
+            });
+        ExecutorService clients = Executors.newFixedThreadPool(20);
+        try {
+            List<Future<Response>> responses =
+                new ArrayList<Future<Response>>();
+            for (int i = 0; i < 200; i++) {
+                final Request r = new Request(new byte[100], SENDER,
+                                              i + "@example.org");
+                responses.add(clients.submit(new Callable<Response>() {
+                        public Response call() {
+                            return new QMQPClient(server.getPort()).send(r);
+                        }
+                    }));
+            }
+            for (int i = 0; i < responses.size(); i++) {
+                Response res = responses.get(i).get(10, TimeUnit.SECONDS);
+                Assert.assertEquals(ReturnCode.OK, res.getReturnCode());
+                Assert.assertEquals(i + "@example.org", res.getDetails());
+            }
+        } finally {
+            clients.shutdown();
+        }
+    }
+
+    @Test
+    public void failingHandlerCausesTemporaryFailure() {
+        startServer(new RequestHandler() {
+                public Response handle(LazyRequest r) {
+                    throw new IllegalStateException("disk full");
+                }
+            });
+        Response res = new QMQPClient(server.getPort())
+            .send(new Request(new byte[0], SENDER, "bob@example.org"));
+        Assert.assertEquals(ReturnCode.TEMP_FAIL, res.getReturnCode());
+    }
+
+    @Test
+    public void malformedRequestCausesPermanentFailure() throws Exception {
+        startServer(okHandler());
+        Assert.assertEquals(ReturnCode.PERM_FAIL,
+                            exchange("5:2:Hi,,").getReturnCode());
+    }
+
+    @Test
+    public void tooBigRequestCausesPermanentFailure() throws Exception {
+        server = newServer(okHandler());
+        server.setMaxRequestSize(100);
+        server.start();
+        Assert.assertEquals(ReturnCode.PERM_FAIL,
+                            exchange("1000:").getReturnCode());
+    }
+
+    @Test
+    public void closesIdleConnections() throws Exception {
+        server = newServer(okHandler());
+        server.setIdleTimeout(200);
+        server.start();
+        Socket s = new Socket("localhost", server.getPort());
+        try {
+            s.setSoTimeout(5000);
+            Assert.assertEquals(-1, s.getInputStream().read());
+        } finally {
+            s.close();
+        }
+    }
+
+    @Test
+    public void closeClosesOpenConnections() throws Exception {
+        startServer(okHandler());
+        Socket s = new Socket("localhost", server.getPort());
+        try {
+            s.setSoTimeout(5000);
+            s.getOutputStream().write("10:".getBytes("ASCII"));
+            s.getOutputStream().flush();
+            // give the server a chance to accept the connection
+            Thread.sleep(100);
+            server.close();
+            Assert.assertEquals(-1, s.getInputStream().read());
+        } finally {
+            s.close();
+        }
+    }
+
+    @Test
+    public void tooBigRequestIsAnsweredBeforeClosing() throws Exception {
+        server = newServer(okHandler());
+        server.setMaxRequestSize(100);
+        server.start();
+        Socket s = new Socket("localhost", server.getPort());
+        try {
+            s.setSoTimeout(5000);
+            OutputStream out = s.getOutputStream();
+            byte[] request = new byte[65536 + 7];
+            System.arraycopy("65536:".getBytes("ASCII"), 0, request, 0, 6);
+            request[request.length - 1] = ',';
+            out.write(request);
+            out.flush();
+            // the server answers and closes before we start reading
+            Thread.sleep(200);
+            Response res = new ResponseCodec().readFrom(s.getInputStream(),
+                                                        1000);
+            Assert.assertEquals(ReturnCode.PERM_FAIL, res.getReturnCode());
+        } finally {
+            s.close();
+        }
+    }
+
+    @Test
+    public void rejectsConnectionsBeyondLimit() throws Exception {
+        server = newServer(okHandler());
+        AdmissionControl a = new AdmissionControl(1, 0, 0);
+        server.setAdmissionControl(a);
+        server.start();
+        Socket idle = new Socket("localhost", server.getPort());
+        try {
+            for (int i = 0; i < 100 && a.getConnections() == 0; i++) {
+                Thread.sleep(10);
+            }
+            Response res = send(new byte[10]);
+            Assert.assertEquals(ReturnCode.TEMP_FAIL, res.getReturnCode());
+            Assert.assertEquals("Server is busy", res.getDetails());
+            Assert.assertEquals(1, a.getConnectionRejections());
+        } finally {
+            idle.close();
+        }
+    }
+
+    @Test
+    public void rejectsRequestsBeyondInFlightBytes() throws Exception {
+        server = newServer(okHandler());
+        AdmissionControl a = new AdmissionControl(0, 100, 0);
+        server.setAdmissionControl(a);
+        server.start();
+        Assert.assertEquals(ReturnCode.TEMP_FAIL,
+                            send(new byte[10000]).getReturnCode());
+        Assert.assertEquals(ReturnCode.OK, send(new byte[10]).getReturnCode());
+        Assert.assertEquals(1, a.getInFlightBytesRejections());
+    }
+
+    @Test
+    public void closesRejectedConnectionsRightAway() throws Exception {
+        server = newServer(okHandler());
+        AdmissionControl a = new AdmissionControl(0, 100, 0);
+        server.setAdmissionControl(a);
+        server.start();
+        Socket s = new Socket("localhost", server.getPort());
+        try {
+            s.setSoTimeout(5000);
+            OutputStream out = s.getOutputStream();
+            // the client keeps the connection open
+            out.write("10000:".getBytes("ASCII"));
+            out.flush();
+            Response res = new ResponseCodec().readFrom(s.getInputStream(),
+                                                        1000);
+            Assert.assertEquals("Server is busy", res.getDetails());
+            for (int i = 0; i < 100 && a.getConnections() > 0; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(0, a.getConnections());
+        } finally {
+            s.close();
+        }
+    }
+
+    private Response send(byte[] message) {
+        return new QMQPClient(server.getPort())
+            .send(new Request(message, SENDER, "bob@example.org"));
+    }
+
+    private Response exchange(String request) throws Exception {
+        Socket s = new Socket("localhost", server.getPort());
+        try {
+            s.setSoTimeout(5000);
+            OutputStream out = s.getOutputStream();
+            out.write(request.getBytes("ASCII"));
+            out.flush();
+            return new ResponseCodec().readFrom(s.getInputStream(), 1000);
+        } finally {
+            s.close();
+        }
+    }
+
+    private void startServer(RequestHandler handler) {
+        server = newServer(handler);
+        server.start();
+    }
+
+    /**
+     * Uses platform threads so the tests run on any Java runtime.
+     */
+    private static VirtualThreadQMQPServer newServer(RequestHandler h) {
+        return new VirtualThreadQMQPServer(new InetSocketAddress(0), h,
+                                           Executors.newCachedThreadPool());
+    }
+
+    private static RequestHandler okHandler() {
+        return new RequestHandler() {
+            public Response handle(LazyRequest r) {
+                return new Response(ReturnCode.OK, "queued");
+            }
+        };
+    }
+}
@@ -16,19 +16,19 @@
 
 package com.innoq.qmqp.testserver;
 
-import com.innoq.qmqp.codec.RequestCodec;
+import com.innoq.qmqp.codec.RequestDecoder;
 import com.innoq.qmqp.codec.ResponseCodec;
 import com.innoq.qmqp.protocol.QMQPException;
 import com.innoq.qmqp.protocol.Request;
 import com.innoq.qmqp.protocol.Response;
 import com.innoq.qmqp.protocol.ReturnCode;
 import com.innoq.qmqp.util.IOUtil;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 /**
  * Rudimentary QMQP-Server not suitable for any sort of production use
@@ -148,7 +148,7 @@ public class QMQPTestServer {
                     IOUtil.close(in, true);
                     IOUtil.close(out, true);
                     IOUtil.close(client, true);
-                    stop();
+                    QMQPTestServer.this.stop();
                 }
             } catch (QMQPException ex) {
                 caughtException(ex);
@@ -159,21 +159,19 @@ public class QMQPTestServer {
     private static final int BUF_LEN = 8192;
 
     private Request readFully(InputStream is) throws IOException {
-        RequestCodec req = new RequestCodec();
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        RequestDecoder decoder = new RequestDecoder();
         byte[] buf = new byte[BUF_LEN];
-        byte[] bytesSoFar = null;
         int len = 0;
         while (len >= 0) {
             len = is.read(buf, 0, BUF_LEN);
             if (len > 0) {
-                bos.write(buf, 0, len);
-                bytesSoFar = bos.toByteArray();
-                try  {
-                    return req.fromNetwork(bytesSoFar);
-                } catch (QMQPException ex) {
-                    bos = new ByteArrayOutputStream();
-                    bos.write(bytesSoFar, 0, bytesSoFar.length);
+                switch (decoder.decode(ByteBuffer.wrap(buf, 0, len))) {
+                case COMPLETE:
+                    return decoder.getRequest();
+                case MALFORMED:
+                    throw new QMQPException(decoder.getError());
+                default:
+                    break;
                 }
             }
         }
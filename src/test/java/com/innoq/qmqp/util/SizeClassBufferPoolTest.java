@@ -0,0 +1,126 @@
+/*
+  Copyright (C) 2026 innoQ Deutschland GmbH
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package com.innoq.qmqp.util;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class SizeClassBufferPoolTest {
+
+    @Test
+    public void roundsUpToSizeClasses() {
+        SizeClassBufferPool pool = new SizeClassBufferPool();
+        Assert.assertEquals(512, pool.acquire(1).capacity());
+        Assert.assertEquals(512, pool.acquire(512).capacity());
+        Assert.assertEquals(1024, pool.acquire(513).capacity());
+        Assert.assertEquals(256 * 1024, pool.getMaxCapacity());
+    }
+
+    @Test
+    public void recyclesReleasedBuffers() {
+        SizeClassBufferPool pool = new SizeClassBufferPool();
+        ByteBuffer b = pool.acquire(1000);
+        b.put((byte) 1);
+        pool.release(b);
+        ByteBuffer again = pool.acquire(700);
+        Assert.assertSame(b, again);
+        Assert.assertEquals(0, again.position());
+        Assert.assertEquals(again.capacity(), again.limit());
+    }
+
+    @Test
+    public void providesDirectBuffersIfAsked() {
+        SizeClassBufferPool pool =
+            new SizeClassBufferPool(true, 4096, 65536);
+        ByteBuffer b = pool.acquire(10);
+        Assert.assertTrue(b.isDirect());
+        pool.release(b);
+        Assert.assertSame(b, pool.acquire(10));
+    }
+
+    @Test
+    public void doesntRecycleForeignOrOversizedBuffers() {
+        SizeClassBufferPool pool = new SizeClassBufferPool(false, 1024, 65536);
+        ByteBuffer big = pool.acquire(5000);
+        Assert.assertEquals(5000, big.capacity());
+        pool.release(big);
+        pool.release(ByteBuffer.allocate(600));
+        pool.release(ByteBuffer.allocateDirect(512));
+        pool.release(ByteBuffer.allocate(512).asReadOnlyBuffer());
+        Assert.assertNotSame(big, pool.acquire(5000));
+        ByteBuffer b = pool.acquire(512);
+        Assert.assertFalse(b.isDirect());
+        Assert.assertFalse(b.isReadOnly());
+    }
+
+    @Test
+    public void sharedQueuesAreCapped() throws InterruptedException {
+        final SizeClassBufferPool pool =
+            new SizeClassBufferPool(false, 1024, 2048);
+        final ByteBuffer[] buffers = new ByteBuffer[10];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire(1024);
+        }
+        // four stay in this thread's cache, two fit into the shared queue
+        for (ByteBuffer b : buffers) {
+            pool.release(b);
+        }
+        Assert.assertEquals(2048, pool.getPooledBytes());
+
+        // another thread only sees the shared queue
+        final AtomicReference<ByteBuffer> fromOtherThread =
+            new AtomicReference<ByteBuffer>();
+        Thread t = new Thread() {
+                public void run() {
+                    fromOtherThread.set(pool.acquire(1024));
+                }
+            };
+        t.start();
+        t.join();
+        Assert.assertEquals(1024, pool.getPooledBytes());
+        boolean recycled = false;
+        for (ByteBuffer b : buffers) {
+            recycled |= b == fromOtherThread.get();
+        }
+        Assert.assertTrue(recycled);
+    }
+
+    @Test
+    public void virtualThreadsUseSharedQueues() throws Exception {
+        Assume.assumeTrue(VirtualThreads.isSupported());
+        final SizeClassBufferPool pool = new SizeClassBufferPool();
+        ExecutorService e =
+            VirtualThreads.newVirtualThreadPerTaskExecutor();
+        e.submit(new Runnable() {
+                public void run() {
+                    pool.release(pool.acquire(1024));
+                }
+            }).get(5, TimeUnit.SECONDS);
+        e.shutdown();
+        Assert.assertEquals(1024, pool.getPooledBytes());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void rejectsNonsensicalMaxCapacity() {
+        new SizeClassBufferPool(false, 0, 1024);
+    }
+}